@@ -0,0 +1,47 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import model.Category;
+import model.ExpenseTrackerModel;
+import model.StorageType;
+import model.Transaction;
+
+/**
+ * Builds models filled with reproducible random transactions for the benchmarks.
+ */
+final class BenchmarkData {
+
+  // Rows added per addTransactions call while filling a model
+  private static final int FILL_BATCH = 100000;
+  private static final Category[] CATEGORIES = Category.values();
+
+  private BenchmarkData() {
+  }
+
+  static ExpenseTrackerModel model(StorageType storage, int rows) {
+    ExpenseTrackerModel model = new ExpenseTrackerModel(storage);
+    Random random = new Random(rows);
+    List<Transaction> batch = new ArrayList<>(Math.min(rows, FILL_BATCH));
+    for (int i = 0; i < rows; i++) {
+      batch.add(new Transaction(amount(random), category(random)));
+      if (batch.size() == FILL_BATCH || i == rows - 1) {
+        model.addTransactions(batch);
+        batch.clear();
+      }
+    }
+    return model;
+  }
+
+  // Whole cents in (0, 1000], so that exact-amount filters find repeats
+  static double amount(Random random) {
+    return (1 + random.nextInt(100000)) / 100.0;
+  }
+
+  static Category category(Random random) {
+    return CATEGORIES[random.nextInt(CATEGORIES.length)];
+  }
+
+}
@@ -0,0 +1,85 @@
+package benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.StorageType;
+import model.Transaction;
+import model.Filter.AmountFilter;
+import model.Filter.AmountRangeFilter;
+import model.Filter.CategoryFilter;
+import model.Filter.TransactionFilter;
+
+/**
+ * Latency of the filters over a model snapshot. The snapshot answers amount
+ * and category filters from the model's indexes; lists above the parallel
+ * threshold are filtered on the common fork-join pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx6g"})
+public class FilterBenchmark {
+
+  @Param({"1000", "100000", "10000000"})
+  public int rows;
+
+  private List<Transaction> transactions;
+  private TransactionFilter amount;
+  private TransactionFilter category;
+  private TransactionFilter amountRange;
+  private TransactionFilter amountAndCategory;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    transactions = BenchmarkData.model(StorageType.HEAP, rows).getTransactions();
+    // An amount that occurs, so the exact filter has matches at every size
+    double existing = transactions.get(transactions.size() / 2).getAmount();
+    amount = new AmountFilter(existing);
+    category = new CategoryFilter("food");
+    amountRange = new AmountRangeFilter(100, 200);
+    amountAndCategory = amountRange.and(category);
+  }
+
+  @Benchmark
+  public List<Transaction> amount() {
+    return amount.filter(transactions);
+  }
+
+  @Benchmark
+  public List<Transaction> category() {
+    return category.filter(transactions);
+  }
+
+  @Benchmark
+  public List<Transaction> amountRange() {
+    return amountRange.filter(transactions);
+  }
+
+  @Benchmark
+  public List<Transaction> amountAndCategory() {
+    return amountAndCategory.filter(transactions);
+  }
+
+  // Counting matches without collecting them
+  @Benchmark
+  public long categoryCount() {
+    return category.rows(transactions).count();
+  }
+
+}
@@ -0,0 +1,130 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.ExpenseTrackerModel;
+import model.StorageType;
+import model.Transaction;
+
+/**
+ * Add and remove throughput of ExpenseTrackerModel, and the cost of reading
+ * its transactions.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class ModelBenchmark {
+
+  // Rows removed per measured batch; remove is destructive, so each batch
+  // gets a freshly filled model
+  private static final int REMOVALS = 100000;
+  private static final int BATCH = 1000;
+
+  @State(Scope.Thread)
+  public static class Empty {
+    @Param({"HEAP", "OFF_HEAP"})
+    public StorageType storage;
+
+    ExpenseTrackerModel model;
+    Random random;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+      model = new ExpenseTrackerModel(storage);
+      random = new Random(42);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Removals {
+    @Param({"HEAP", "OFF_HEAP"})
+    public StorageType storage;
+
+    ExpenseTrackerModel model;
+    long nextId;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+      model = BenchmarkData.model(storage, REMOVALS);
+      nextId = 0;
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class Filled {
+    @Param({"HEAP", "OFF_HEAP"})
+    public StorageType storage;
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    ExpenseTrackerModel model;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      model = BenchmarkData.model(storage, rows);
+    }
+  }
+
+  @Benchmark
+  public Transaction add(Empty state) {
+    Transaction t = new Transaction(BenchmarkData.amount(state.random), BenchmarkData.category(state.random));
+    state.model.addTransaction(t);
+    return t;
+  }
+
+  // Adds BATCH transactions per call with one addTransactions
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public ExpenseTrackerModel addBatch(Empty state) {
+    List<Transaction> batch = new ArrayList<>(BATCH);
+    for (int i = 0; i < BATCH; i++) {
+      batch.add(new Transaction(BenchmarkData.amount(state.random), BenchmarkData.category(state.random)));
+    }
+    state.model.addTransactions(batch);
+    return state.model;
+  }
+
+  // Time to remove REMOVALS rows in ID order
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 3, batchSize = REMOVALS)
+  @Measurement(iterations = 10, batchSize = REMOVALS)
+  public boolean remove(Removals state) {
+    return state.model.removeTransaction(state.nextId++);
+  }
+
+  // The published snapshot, reused while the model is unchanged
+  @Benchmark
+  public List<Transaction> getTransactions(Filled state) {
+    return state.model.getTransactions();
+  }
+
+  // What a caller pays for its own copy of the rows
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public List<Transaction> copyTransactions(Filled state) {
+    return new ArrayList<>(state.model.getTransactions());
+  }
+
+}
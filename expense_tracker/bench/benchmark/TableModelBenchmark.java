@@ -0,0 +1,101 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import model.ExpenseTrackerModel;
+import model.StorageType;
+import model.Transaction;
+import model.TransactionSnapshot;
+import view.TransactionTableModel;
+
+/**
+ * Cost of refreshing the table, measured on the table model alone so that it
+ * runs headless. ExpenseTrackerView.refreshTable passes the model's snapshot
+ * and total to TransactionTableModel.setTransactions; painting then reads the
+ * visible cells with getValueAt.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-Djava.awt.headless=true"})
+public class TableModelBenchmark {
+
+  // Rows added between the two snapshots, and rows visible on screen
+  private static final int ADDED = 100;
+  private static final int VISIBLE = 40;
+
+  @Param({"1000", "100000", "1000000"})
+  public int rows;
+
+  private TransactionTableModel tableModel;
+  private TransactionSnapshot before;
+  private TransactionSnapshot after;
+  private double beforeTotal;
+  private double afterTotal;
+  private boolean showAfter;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    ExpenseTrackerModel model = BenchmarkData.model(StorageType.HEAP, rows);
+    Random random = new Random(7);
+    // Without removed rows every ID equals its row, and the JIT can skip
+    // most of the diff; real ledgers have some undone transactions
+    for (int i = 0; i < rows / 100; i++) {
+      model.removeTransaction(random.nextInt(rows));
+    }
+    before = model.getTransactions();
+    beforeTotal = model.getSummary().getTotal();
+    List<Transaction> added = new ArrayList<>(ADDED);
+    for (int i = 0; i < ADDED; i++) {
+      added.add(new Transaction(BenchmarkData.amount(random), BenchmarkData.category(random)));
+    }
+    model.addTransactions(added);
+    after = model.getTransactions();
+    afterTotal = model.getSummary().getTotal();
+    tableModel = new TransactionTableModel();
+    tableModel.setTransactions(before, beforeTotal);
+  }
+
+  // Alternates between the snapshots, so every call diffs ADDED rows
+  @Benchmark
+  public TransactionTableModel refresh() {
+    showAfter = !showAfter;
+    if (showAfter) {
+      tableModel.setTransactions(after, afterTotal);
+    } else {
+      tableModel.setTransactions(before, beforeTotal);
+    }
+    return tableModel;
+  }
+
+  // Reads one screen of cells at the end of the table, as painting does
+  @Benchmark
+  public void paintVisibleRows(Blackhole blackhole) {
+    int rowCount = tableModel.getRowCount();
+    for (int row = Math.max(0, rowCount - VISIBLE); row < rowCount; row++) {
+      for (int column = 0; column < tableModel.getColumnCount(); column++) {
+        blackhole.consume(tableModel.getValueAt(row, column));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,76 @@
+package benchmark;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import controller.InputValidation;
+import model.Transaction;
+
+/**
+ * Cost of validating amounts and categories, alone and as part of creating
+ * a Transaction.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+  private static final int ROWS = 1024;
+  // Mixed case and invalid words, as typed by users or found in imports
+  private static final String[] WORDS = {"food", "Travel", "BILLS", "entertainment", "other", "fod", "f00d", ""};
+
+  private double[] amounts;
+  private String[] categories;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    amounts = new double[ROWS];
+    categories = new String[ROWS];
+    for (int i = 0; i < ROWS; i++) {
+      // Roughly one amount in ten is out of range
+      amounts[i] = random.nextInt(1100) + 0.5;
+      categories[i] = WORDS[random.nextInt(WORDS.length)];
+    }
+  }
+
+  @Benchmark
+  public boolean isValidCategory() {
+    return InputValidation.isValidCategory(categories[next++ & (ROWS - 1)]);
+  }
+
+  @Benchmark
+  public boolean isValidAmount() {
+    return InputValidation.isValidAmount(amounts[next++ & (ROWS - 1)]);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public BitSet findInvalid() {
+    return InputValidation.findInvalid(amounts, categories, 0, ROWS);
+  }
+
+  // The first five words are valid
+  @Benchmark
+  public Transaction newTransaction() {
+    return new Transaction(12.5, WORDS[next++ % 5]);
+  }
+
+}
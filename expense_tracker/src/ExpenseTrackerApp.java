@@ -1,6 +1,14 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
 import javax.swing.JOptionPane;
 
+import controller.ControllerMetrics;
 import controller.ExpenseTrackerController;
+import controller.RefreshScheduler;
 import model.ExpenseTrackerModel;
 import view.ExpenseTrackerView;
 import model.Filter.AmountFilter;
@@ -14,12 +22,17 @@ public class ExpenseTrackerApp {
   public static void main(String[] args) {
 
     // Create MVC components
-    ExpenseTrackerModel model = new ExpenseTrackerModel();
     ExpenseTrackerView view = new ExpenseTrackerView();
+    ExpenseTrackerModel model = openModel(view);
     ExpenseTrackerController controller = new ExpenseTrackerController(model, view);
+    startMetrics(controller.getMetrics());
+    // Repaint at most once per frame during bursts of changes
+    controller.setRefreshInterval(RefreshScheduler.FRAME_INTERVAL_MILLIS);
 
     // Initialize view
     view.setVisible(true);
+    // Show the transactions restored from the journal
+    controller.refresh();
 
     // Handle add transaction button clicks
     view.getAddTransactionBtn().addActionListener(e -> {
@@ -28,7 +41,14 @@ public class ExpenseTrackerApp {
       String category = view.getCategoryField();
 
       // Call controller to add transaction
-      boolean added = controller.addTransaction(amount, category);
+      boolean added;
+      try {
+        added = controller.addTransaction(amount, category);
+      } catch (UncheckedIOException exception) {
+        JOptionPane.showMessageDialog(view, "The transaction could not be saved: " + exception.getMessage());
+        view.toFront();
+        return;
+      }
 
       if (!added) {
         JOptionPane.showMessageDialog(view, "Invalid amount or category entered");
@@ -96,4 +116,46 @@ public class ExpenseTrackerApp {
       }
     });
   }
+
+  // Publishes the controller metrics over JMX and dumps them periodically to
+  // the CSV file named by "expensetracker.metricsFile", or to the log if it is
+  // not set, every "expensetracker.metricsInterval" seconds (default 60; 0
+  // for no dump). Run with -Dexpensetracker.metrics=false to turn metrics off.
+  private static void startMetrics(ControllerMetrics metrics) {
+    if (!ControllerMetrics.ENABLED) {
+      return;
+    }
+    try {
+      metrics.registerMBeans();
+    } catch (JMException e) {
+      System.err.println("Could not register the metrics MBeans: " + e.getMessage());
+    }
+    long interval = Long.getLong("expensetracker.metricsInterval", 60);
+    if (interval > 0) {
+      String file = System.getProperty("expensetracker.metricsFile");
+      metrics.startDump(file == null ? null : Paths.get(file), interval, TimeUnit.SECONDS);
+    }
+  }
+
+  // Opens the journaled model, or an in-memory one if the journal cannot be read.
+  // The journal directory can be set with the "expensetracker.journal" property.
+  private static ExpenseTrackerModel openModel(ExpenseTrackerView view) {
+    String directory = System.getProperty("expensetracker.journal", "expense_journal");
+    try {
+      ExpenseTrackerModel model = new ExpenseTrackerModel(Paths.get(directory));
+      // Sync the last changes when the window is closed
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        try {
+          model.close();
+        } catch (IOException e) {
+          System.err.println("Could not close the journal: " + e.getMessage());
+        }
+      }));
+      return model;
+    } catch (IOException | UncheckedIOException e) {
+      JOptionPane.showMessageDialog(view, "Could not open the journal in " + directory
+          + "; changes will not be saved. " + e.getMessage());
+      return new ExpenseTrackerModel();
+    }
+  }
 }
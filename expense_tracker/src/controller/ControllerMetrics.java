@@ -0,0 +1,279 @@
+package controller;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Latencies, counts, ledger size and filter selectivity of the controller's
+ * operations.
+ *
+ * Each operation's latency covers the whole controller call, including the
+ * refresh of the table it triggers. A background filter is timed from
+ * applyFilter until its final result is shown. The count of an operation is
+ * the count of its histogram.
+ *
+ * Metrics are on unless the "expensetracker.metrics" system property is
+ * "false". The switch is read once into a static final field, so when it is
+ * off the JIT removes the recording code from the controller entirely.
+ */
+public final class ControllerMetrics implements ControllerMetricsMBean {
+
+  public static final boolean ENABLED =
+      !"false".equalsIgnoreCase(System.getProperty("expensetracker.metrics"));
+
+  private static final String DOMAIN = "expensetracker";
+  private static final String[] OPERATIONS = {"add", "remove", "filter", "refresh"};
+
+  private final LatencyHistogram add = new LatencyHistogram();
+  private final LatencyHistogram remove = new LatencyHistogram();
+  private final LatencyHistogram filter = new LatencyHistogram();
+  private final LatencyHistogram refresh = new LatencyHistogram();
+  private final LongAdder rejectedAdds = new LongAdder();
+  private final LongAdder filteredRows = new LongAdder();
+  private final LongAdder matchedRows = new LongAdder();
+  private volatile double lastFilterSelectivity = Double.NaN;
+  private final IntSupplier ledgerSize;
+
+  private ScheduledExecutorService dumper;
+
+  ControllerMetrics(IntSupplier ledgerSize) {
+    this.ledgerSize = ledgerSize;
+  }
+
+  // Start time of an operation, or 0 if metrics are off
+  static long start() {
+    return ENABLED ? System.nanoTime() : 0;
+  }
+
+  void addDone(long start) {
+    if (ENABLED) {
+      add.record(System.nanoTime() - start);
+    }
+  }
+
+  void addRejected() {
+    if (ENABLED) {
+      rejectedAdds.increment();
+    }
+  }
+
+  void removeDone(long start) {
+    if (ENABLED) {
+      remove.record(System.nanoTime() - start);
+    }
+  }
+
+  void refreshDone(long start) {
+    if (ENABLED) {
+      refresh.record(System.nanoTime() - start);
+    }
+  }
+
+  void filterDone(long start, int rows, int matches) {
+    if (ENABLED) {
+      filter.record(System.nanoTime() - start);
+      filteredRows.add(rows);
+      matchedRows.add(matches);
+      lastFilterSelectivity = rows == 0 ? Double.NaN : (double) matches / rows;
+    }
+  }
+
+  public LatencyHistogram getAddLatency() {
+    return add;
+  }
+
+  public LatencyHistogram getRemoveLatency() {
+    return remove;
+  }
+
+  public LatencyHistogram getFilterLatency() {
+    return filter;
+  }
+
+  public LatencyHistogram getRefreshLatency() {
+    return refresh;
+  }
+
+  @Override
+  public int getLedgerSize() {
+    return ledgerSize.getAsInt();
+  }
+
+  @Override
+  public long getRejectedAdds() {
+    return rejectedAdds.sum();
+  }
+
+  @Override
+  public long getFilteredRows() {
+    return filteredRows.sum();
+  }
+
+  @Override
+  public long getMatchedRows() {
+    return matchedRows.sum();
+  }
+
+  @Override
+  public double getFilterSelectivity() {
+    long rows = filteredRows.sum();
+    return rows == 0 ? Double.NaN : (double) matchedRows.sum() / rows;
+  }
+
+  @Override
+  public double getLastFilterSelectivity() {
+    return lastFilterSelectivity;
+  }
+
+  @Override
+  public void reset() {
+    for (LatencyHistogram histogram : histograms()) {
+      histogram.reset();
+    }
+    rejectedAdds.reset();
+    filteredRows.reset();
+    matchedRows.reset();
+    lastFilterSelectivity = Double.NaN;
+  }
+
+  private LatencyHistogram[] histograms() {
+    return new LatencyHistogram[] {add, remove, filter, refresh};
+  }
+
+  /**
+   * Registers these metrics with the platform MBean server as
+   * expensetracker:type=ControllerMetrics, and each latency histogram as
+   * expensetracker:type=Latency,operation=add (remove, filter, refresh).
+   * Metrics registered earlier under the same names are replaced. Does
+   * nothing if metrics are off.
+   */
+  public void registerMBeans() throws JMException {
+    if (!ENABLED) {
+      return;
+    }
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    register(server, new ObjectName(DOMAIN + ":type=ControllerMetrics"), this);
+    LatencyHistogram[] histograms = histograms();
+    for (int i = 0; i < OPERATIONS.length; i++) {
+      register(server, new ObjectName(DOMAIN + ":type=Latency,operation=" + OPERATIONS[i]), histograms[i]);
+    }
+  }
+
+  private static void register(MBeanServer server, ObjectName name, Object mbean) throws JMException {
+    if (server.isRegistered(name)) {
+      server.unregisterMBean(name);
+    }
+    server.registerMBean(mbean, name);
+  }
+
+  /**
+   * Writes the metrics every interval on a background thread: as a CSV row
+   * appended to csvFile, or as a log line if csvFile is null. A new CSV file
+   * starts with a header row. Does nothing if metrics are off.
+   */
+  public synchronized void startDump(Path csvFile, long interval, TimeUnit unit) {
+    if (!ENABLED) {
+      return;
+    }
+    if (interval <= 0) {
+      throw new IllegalArgumentException("Invalid metrics dump interval");
+    }
+    stopDump();
+    dumper = Executors.newSingleThreadScheduledExecutor(task -> {
+      Thread thread = new Thread(task, "metrics-dump");
+      thread.setDaemon(true);
+      return thread;
+    });
+    dumper.scheduleAtFixedRate(() -> dump(csvFile), interval, interval, unit);
+  }
+
+  public synchronized void stopDump() {
+    if (dumper != null) {
+      dumper.shutdown();
+      dumper = null;
+    }
+  }
+
+  private void dump(Path csvFile) {
+    try {
+      if (csvFile == null) {
+        System.getLogger("expensetracker.metrics").log(System.Logger.Level.INFO, toString());
+        return;
+      }
+      boolean newFile = !Files.exists(csvFile) || Files.size(csvFile) == 0;
+      try (BufferedWriter writer = Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8,
+          StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+        if (newFile) {
+          writer.write(csvHeader());
+          writer.newLine();
+        }
+        writer.write(csvRow());
+        writer.newLine();
+      }
+    } catch (IOException | RuntimeException e) {
+      // A failed dump must not stop the next ones
+      System.err.println("Could not write the metrics: " + e.getMessage());
+    }
+  }
+
+  static String csvHeader() {
+    StringBuilder header = new StringBuilder("time,ledger_size,filter_selectivity,rejected_adds");
+    for (String operation : OPERATIONS) {
+      header.append(',').append(operation).append("_count")
+          .append(',').append(operation).append("_mean_us")
+          .append(',').append(operation).append("_p50_us")
+          .append(',').append(operation).append("_p99_us")
+          .append(',').append(operation).append("_max_us");
+    }
+    return header.toString();
+  }
+
+  String csvRow() {
+    StringBuilder row = new StringBuilder();
+    row.append(Instant.now()).append(',').append(getLedgerSize())
+        .append(',').append(format(getFilterSelectivity())).append(',').append(getRejectedAdds());
+    for (LatencyHistogram histogram : histograms()) {
+      row.append(',').append(histogram.getCount())
+          .append(',').append(format(histogram.getMeanMicros()))
+          .append(',').append(format(histogram.getP50Micros()))
+          .append(',').append(format(histogram.getP99Micros()))
+          .append(',').append(format(histogram.getMaxMicros()));
+    }
+    return row.toString();
+  }
+
+  private static String format(double value) {
+    return Double.isNaN(value) ? "" : String.format(Locale.ROOT, "%.3f", value);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder("ControllerMetrics[ledgerSize=").append(getLedgerSize())
+        .append(", filterSelectivity=").append(format(getFilterSelectivity()))
+        .append(", rejectedAdds=").append(getRejectedAdds());
+    LatencyHistogram[] histograms = histograms();
+    for (int i = 0; i < OPERATIONS.length; i++) {
+      text.append(", ").append(OPERATIONS[i]).append("=").append(histograms[i].getCount())
+          .append(" ops p50 ").append(format(histograms[i].getP50Micros()))
+          .append(" us p99 ").append(format(histograms[i].getP99Micros())).append(" us");
+    }
+    return text.append("]").toString();
+  }
+
+}
@@ -0,0 +1,25 @@
+package controller;
+
+/**
+ * JMX view of the ControllerMetrics that are not latencies; each latency
+ * histogram is registered as its own LatencyHistogramMBean.
+ */
+public interface ControllerMetricsMBean {
+
+  int getLedgerSize();
+
+  long getRejectedAdds();
+
+  long getFilteredRows();
+
+  long getMatchedRows();
+
+  // Matched rows over filtered rows across all filters, or NaN before the first
+  double getFilterSelectivity();
+
+  // Selectivity of the most recent filter, or NaN before the first
+  double getLastFilterSelectivity();
+
+  void reset();
+
+}
@@ -2,13 +2,22 @@ package controller;
 
 import view.ExpenseTrackerView;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.JOptionPane;
+import javax.swing.SwingWorker;
 
 import model.ExpenseTrackerModel;
 import model.Transaction;
+import model.TransactionFiles;
+import model.TransactionSnapshot;
+import model.Filter.ParallelFiltering;
 import model.Filter.TransactionFilter;
 
 public class ExpenseTrackerController {
@@ -22,9 +31,33 @@ public class ExpenseTrackerController {
    */
   private TransactionFilter filter;
 
+  // Ledgers with fewer transactions than this are filtered right away on the
+  // calling thread; larger ones are filtered in the background.
+  public static final int BACKGROUND_FILTER_THRESHOLD = 10000;
+  // Minimum number of transactions filtered between two partial results
+  private static final int FILTER_BLOCK_SIZE = 8192;
+  // Upper bound on the number of partial results of one background filter
+  private static final int MAX_FILTER_BLOCKS = 16;
+
+  // The background filter still running, if any
+  private FilterWorker filterWorker;
+
+  private final ControllerMetrics metrics;
+  // Runs the table refreshes on the EDT; see setRefreshInterval
+  private volatile RefreshScheduler refreshScheduler;
+
   public ExpenseTrackerController(ExpenseTrackerModel model, ExpenseTrackerView view) {
     this.model = model;
     this.view = view;
+    this.metrics = new ControllerMetrics(model::getTransactionCount);
+    this.refreshScheduler = new RefreshScheduler(this::refreshTable, 0);
+    // Every change to the model refreshes the table, whoever made it
+    model.addTransactionListener(event -> changed());
+  }
+
+  // Latencies and counts of the operations below; see ControllerMetrics
+  public ControllerMetrics getMetrics() {
+    return metrics;
   }
 
   public void setFilter(TransactionFilter filter) {
@@ -32,52 +65,288 @@ public class ExpenseTrackerController {
     this.filter = filter;
   }
 
+  /**
+   * Sets how the table is refreshed after a change. The table is only ever
+   * refreshed on the EDT. With an interval of 0, the default, a change made
+   * on the EDT or through this controller is shown before the changing method
+   * returns, and other changes are shown together as soon as the EDT gets to
+   * them. With
+   * a positive interval, refreshes are coalesced by a RefreshScheduler into at
+   * most one per interval on the EDT, so bursts of changes repaint the table
+   * once; RefreshScheduler.FRAME_INTERVAL_MILLIS suits interactive use.
+   */
+  public void setRefreshInterval(int intervalMillis) {
+    if (intervalMillis < 0) {
+      throw new IllegalArgumentException("Invalid refresh interval");
+    }
+    refreshScheduler.flush();
+    refreshScheduler = new RefreshScheduler(this::refreshTable, intervalMillis);
+  }
+
+  // Refreshes the table after a change to the model, on the EDT and possibly
+  // coalesced with other changes; the model may call this from any thread.
+  // The table model compares the new snapshot with the one it shows by their
+  // removed rows, so this does not rescan the ledger.
+  private void changed() {
+    refreshScheduler.request();
+  }
+
+  // Shows the pending changes, so that row positions in the table match the model
+  private void flushRefresh() {
+    refreshScheduler.flush();
+  }
+
+  // Shows a change made through this controller before it returns, unless
+  // refreshes are coalesced
+  private void showChange() {
+    RefreshScheduler scheduler = refreshScheduler;
+    if (scheduler.getIntervalMillis() == 0) {
+      scheduler.flush();
+    }
+  }
+
+  // Shows the model in the table now, on the EDT, from any thread
   public void refresh() {
+    refreshScheduler.request();
+    refreshScheduler.flush();
+  }
+
+  // Only run by the RefreshScheduler, on the EDT
+  private void refreshTable() {
+    long start = ControllerMetrics.start();
     List<Transaction> transactions = model.getTransactions();
-    view.refreshTable(transactions);
+    // The model keeps a running total, so the view does not sum the rows
+    view.refreshTable(transactions, model.getSummary().getTotal());
+    metrics.refreshDone(start);
   }
 
   public boolean addTransaction(double amount, String category) {
+    long start = ControllerMetrics.start();
     if (!InputValidation.isValidAmount(amount)) {
+      metrics.addRejected();
       return false;
     }
     if (!InputValidation.isValidCategory(category)) {
+      metrics.addRejected();
       return false;
     }
     
     Transaction t = new Transaction(amount, category);
     model.addTransaction(t);
-    view.getTableModel().addRow(new Object[]{t.getAmount(), t.getCategory(), t.getTimestamp()});
-    refresh();
+    showChange();
+    metrics.addDone(start);
     return true;
   }
 
+  /**
+   * Adds one transaction per amount/category pair, e.g.
+   * addTransactions(List.of(Map.entry(12.5, "food"), Map.entry(40.0, "bills"))).
+   *
+   * All pairs are validated first; if any is invalid nothing is added and
+   * false is returned. Otherwise the transactions are added as one batch and
+   * the table is refreshed once, which shows up as a single row insert.
+   */
+  public boolean addTransactions(Collection<? extends Map.Entry<Double, String>> pairs) {
+    if (pairs == null) {
+      return false;
+    }
+    List<Transaction> batch = new ArrayList<>(pairs.size());
+    for (Map.Entry<Double, String> pair : pairs) {
+      if (pair == null || pair.getKey() == null
+          || !InputValidation.isValidAmount(pair.getKey())
+          || !InputValidation.isValidCategory(pair.getValue())) {
+        return false;
+      }
+      batch.add(new Transaction(pair.getKey(), pair.getValue()));
+    }
+    model.addTransactions(batch);
+    showChange();
+    return true;
+  }
+
+  /**
+   * Imports the transactions in a CSV file (named *.csv) or a binary export
+   * (any other name). The model reports each imported batch, which refreshes
+   * the table.
+   *
+   * @return the number of transactions imported
+   * @throws IllegalArgumentException if the file holds an invalid transaction;
+   *     nothing is imported then
+   */
+  public int importTransactions(Path file) throws IOException {
+    int count = isCsv(file)
+        ? TransactionFiles.importCsv(model, file)
+        : TransactionFiles.importBinary(model, file);
+    showChange();
+    return count;
+  }
+
+  // Exports all transactions, choosing the format like importTransactions
+  public void exportTransactions(Path file) throws IOException {
+    if (isCsv(file)) {
+      TransactionFiles.exportCsv(model.getTransactions(), file);
+    } else {
+      TransactionFiles.exportBinary(model.getTransactions(), file);
+    }
+  }
+
+  private static boolean isCsv(Path file) {
+    return file.getFileName().toString().toLowerCase().endsWith(".csv");
+  }
+
   // this function removes the selected row from the table
   public void removeTransaction(int selectedRowID) {
-    List<Transaction> transactions = model.getTransactions();
-    Transaction t = transactions.get(selectedRowID);
-    model.removeTransaction(t);
-    refresh();
+    long start = ControllerMetrics.start();
+    flushRefresh();
+    // Look up the transaction by its row and remove it by ID without copying the list
+    Transaction t = model.getTransactionAt(selectedRowID);
+    model.removeTransaction(t.getId());
+    showChange();
+    metrics.removeDone(start);
   }
 
   public void applyFilter() {
     //null check for filter
     if(filter!=null){
-      // Use the Strategy class to perform the desired filtering
-      List<Transaction> transactions = model.getTransactions();
-      List<Transaction> filteredTransactions = filter.filter(transactions);
-      List<Integer> rowIndexes = new ArrayList<>();
-      for (Transaction t : filteredTransactions) {
-        int rowIndex = transactions.indexOf(t);
-        if (rowIndex != -1) {
-          rowIndexes.add(rowIndex);
-        }
-      }
-      view.highlightRows(rowIndexes);
+      runFilter(filter);
     }
     else{
       JOptionPane.showMessageDialog(view, "No filter applied");
       view.toFront();}
 
   }
+
+  private void runFilter(TransactionFilter filter) {
+    // A newer filter always replaces one that is still running
+    cancelFilter();
+    long start = ControllerMetrics.start();
+    // Highlighted rows are positions in the table, so it must show the model
+    flushRefresh();
+    TransactionSnapshot transactions = model.getTransactions();
+    if (transactions.size() < BACKGROUND_FILTER_THRESHOLD) {
+      // Use the Strategy class to perform the desired filtering;
+      // it reports the matching rows directly
+      BitSet rows = filter.filterRows(transactions);
+      view.highlightRows(rows);
+      if (ControllerMetrics.ENABLED) {
+        metrics.filterDone(start, transactions.size(), rows.cardinality());
+      }
+    } else {
+      // Keep the Event Dispatch Thread responsive on large ledgers. The
+      // worker adds its matches to an empty set that the view owns.
+      view.highlightRows(new BitSet());
+      filterWorker = new FilterWorker(filter, transactions, start);
+      filterWorker.execute();
+    }
+  }
+
+  // Cancels the background filter, if one is running
+  public void cancelFilter() {
+    if (filterWorker != null) {
+      filterWorker.cancel(false);
+      filterWorker = null;
+    }
+  }
+
+  /**
+   * Runs a filter over a snapshot of the transactions on a background thread.
+   *
+   * The transactions are filtered block by block; large blocks are split
+   * further across the fork-join pool. The matches of each block are handed
+   * to the view as they are found, and the worker stops at the next block
+   * boundary once it is cancelled. The view is only touched on the EDT, in
+   * process and done.
+   *
+   * Matches are positions in the snapshot the worker started with. If the
+   * model has changed since, they are not shown, and the filter is run again
+   * on the current transactions when the worker is done.
+   */
+  private class FilterWorker extends SwingWorker<BitSet, FilterWorker.Block> {
+
+    private final TransactionFilter filter;
+    private final TransactionSnapshot transactions;
+    // When applyFilter started this worker, for the filter latency
+    private final long start;
+
+    FilterWorker(TransactionFilter filter, TransactionSnapshot transactions, long start) {
+      this.filter = filter;
+      this.transactions = transactions;
+      this.start = start;
+    }
+
+    // Matches of the rows from start on, relative to start. Not changed
+    // once published.
+    private final class Block {
+      final int start;
+      final BitSet rows;
+
+      Block(int start, BitSet rows) {
+        this.start = start;
+        this.rows = rows;
+      }
+
+      void addTo(BitSet all) {
+        for (int row = rows.nextSetBit(0); row >= 0; ) {
+          int runEnd = rows.nextClearBit(row);
+          all.set(start + row, start + runEnd);
+          row = rows.nextSetBit(runEnd);
+        }
+      }
+    }
+
+    @Override
+    protected BitSet doInBackground() {
+      BitSet rows = new BitSet(transactions.size());
+      int size = transactions.size();
+      int blockSize = Math.max(FILTER_BLOCK_SIZE, size / MAX_FILTER_BLOCKS + 1);
+      for (int start = 0; start < size && !isCancelled(); start += blockSize) {
+        int end = Math.min(start + blockSize, size);
+        // Filter the block as a sub-list, so its matches take space for the block only
+        Block block = new Block(start, new BitSet(end - start));
+        ParallelFiltering.filterRows(filter, transactions.subList(start, end), 0, end - start, block.rows);
+        block.addTo(rows);
+        publish(block);
+      }
+      return rows;
+    }
+
+    // Whether the model still shows the rows this worker filters; O(log n)
+    private boolean isCurrent() {
+      TransactionSnapshot current = model.getTransactions();
+      return current.size() == transactions.size()
+          && current.commonPrefix(transactions) == transactions.size();
+    }
+
+    @Override
+    protected void process(List<Block> chunks) {
+      if (filterWorker != this || !isCurrent()) {
+        return;
+      }
+      for (Block block : chunks) {
+        view.addHighlightedRows(block.start, block.rows);
+      }
+    }
+
+    @Override
+    protected void done() {
+      if (filterWorker != this || isCancelled()) {
+        return;
+      }
+      filterWorker = null;
+      if (!isCurrent()) {
+        runFilter(filter);
+        return;
+      }
+      try {
+        BitSet rows = get();
+        view.highlightRows(rows);
+        if (ControllerMetrics.ENABLED) {
+          metrics.filterDone(start, transactions.size(), rows.cardinality());
+        }
+      } catch (Exception e) {
+        JOptionPane.showMessageDialog(view, "Filtering failed: " + e.getMessage());
+        view.toFront();
+      }
+    }
+  }
 }
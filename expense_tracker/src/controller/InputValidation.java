@@ -1,11 +1,17 @@
 package controller;
 
-import java.util.Arrays;
+import java.util.BitSet;
+
+import model.Category;
 
 public class InputValidation {
 
   public static boolean isValidAmount(double amount) {
     
+    // NaN fails every comparison below, so reject it first
+    if (Double.isNaN(amount)) {
+      return false;
+    }
     // Check range
     if(amount >1000) {
       return false;
@@ -20,28 +26,26 @@ public class InputValidation {
   }
 
   public static boolean isValidCategory(String category) {
+    // Only the words of Category, in any letter case
+    return Category.fromName(category) != null;
+  }
 
-    if(category == null) {
-      return false; 
-    }
-  
-    if(category.trim().isEmpty()) {
-      return false;
-    }
-
-    if(!category.matches("[a-zA-Z]+")) {
-      return false;
+  /**
+   * Validates count rows starting at offset and returns the invalid ones:
+   * bit i is set if row offset + i has an invalid amount or category. The
+   * result is empty if every row is valid.
+   */
+  public static BitSet findInvalid(double[] amounts, String[] categories, int offset, int count) {
+    if (offset < 0 || count < 0 || offset + count > amounts.length || offset + count > categories.length) {
+      throw new IllegalArgumentException("Invalid row range");
     }
-
-    String[] validWords = {"food", "travel", "bills", "entertainment", "other"};
-
-    if(!Arrays.asList(validWords).contains(category.toLowerCase())) {
-      // invalid word  
-      return false;
+    BitSet invalid = new BitSet();
+    for (int i = 0; i < count; i++) {
+      if (!isValidAmount(amounts[offset + i]) || !isValidCategory(categories[offset + i])) {
+        invalid.set(i);
+      }
     }
-  
-    return true;
-  
+    return invalid;
   }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,122 @@
+package controller;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts latencies in log-linear buckets, like HdrHistogram: values below 32
+ * nanoseconds get a bucket each, and every power-of-two range above is split
+ * into 16 buckets, so a reported percentile is within about 6% of the true
+ * value. The buckets cover every non-negative long in a fixed array.
+ *
+ * Recording is a few atomic increments and allocates nothing, so it can be
+ * called from any thread on hot paths. Reads are not atomic with respect to
+ * concurrent recording, which is fine for monitoring.
+ */
+public final class LatencyHistogram implements LatencyHistogramMBean {
+
+  // Values below 2^SUB_BUCKET_BITS are counted exactly
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int HALF_SUB_BUCKETS = 1 << (SUB_BUCKET_BITS - 1);
+  private static final int BUCKETS = bucketOf(Long.MAX_VALUE) + 1;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong totalNanos = new AtomicLong();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  public void record(long nanos) {
+    if (nanos < 0) {
+      // System.nanoTime is monotonic, but be safe with values from elsewhere
+      nanos = 0;
+    }
+    counts.incrementAndGet(bucketOf(nanos));
+    count.incrementAndGet();
+    totalNanos.addAndGet(nanos);
+    long max = maxNanos.get();
+    while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+      max = maxNanos.get();
+    }
+  }
+
+  @Override
+  public long getCount() {
+    return count.get();
+  }
+
+  @Override
+  public double getMeanMicros() {
+    long n = count.get();
+    return n == 0 ? 0 : totalNanos.get() / 1000.0 / n;
+  }
+
+  @Override
+  public double getP50Micros() {
+    return valueAtPercentile(50) / 1000.0;
+  }
+
+  @Override
+  public double getP90Micros() {
+    return valueAtPercentile(90) / 1000.0;
+  }
+
+  @Override
+  public double getP99Micros() {
+    return valueAtPercentile(99) / 1000.0;
+  }
+
+  @Override
+  public double getMaxMicros() {
+    return maxNanos.get() / 1000.0;
+  }
+
+  @Override
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts.set(i, 0);
+    }
+    count.set(0);
+    totalNanos.set(0);
+    maxNanos.set(0);
+  }
+
+  /**
+   * Returns the largest value in the bucket holding the given percentile of
+   * the recorded values, capped at the largest recorded value, or 0 if
+   * nothing was recorded.
+   */
+  public long valueAtPercentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("Invalid percentile");
+    }
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      total += counts.get(i);
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(highestValueIn(i), maxNanos.get());
+      }
+    }
+    return maxNanos.get();
+  }
+
+  // Bucket shift is the number of low bits dropped; values below 32 keep all bits
+  private static int bucketOf(long value) {
+    int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+    return shift * HALF_SUB_BUCKETS + (int) (value >>> shift);
+  }
+
+  private static long highestValueIn(int bucket) {
+    int shift = Math.max(0, bucket / HALF_SUB_BUCKETS - 1);
+    long lowest = (long) (bucket - shift * HALF_SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+
+}
@@ -0,0 +1,22 @@
+package controller;
+
+/**
+ * JMX view of a LatencyHistogram. Latencies are reported in microseconds.
+ */
+public interface LatencyHistogramMBean {
+
+  long getCount();
+
+  double getMeanMicros();
+
+  double getP50Micros();
+
+  double getP90Micros();
+
+  double getP99Micros();
+
+  double getMaxMicros();
+
+  void reset();
+
+}
@@ -0,0 +1,135 @@
+package controller;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * Coalesces requests to refresh the view into at most one refresh per
+ * interval, run on the Event Dispatch Thread.
+ *
+ * The first request after a refresh schedules the next one for when the
+ * interval since the last refresh is over, or right away if it already is;
+ * requests until then are merged into it. The refresh shows the model as it
+ * is when the refresh runs, and the table model turns the difference to what
+ * it showed before into as few row events as possible, so a burst of adds
+ * becomes one row insert.
+ *
+ * With an interval of 0, a request made on the EDT refreshes at once, and
+ * requests made on other threads are merged into one refresh that runs on
+ * the EDT as soon as it gets to it.
+ *
+ * All methods may be called from any thread. The refresh always runs on the
+ * EDT; flush and cancel called elsewhere wait for the EDT to carry them out.
+ */
+public class RefreshScheduler {
+
+  // One frame at 60 Hz
+  public static final int FRAME_INTERVAL_MILLIS = 16;
+
+  private final Runnable refresh;
+  private final long intervalNanos;
+  private final Timer timer;
+  // Set by the first request after a refresh, cleared by the refresh
+  private final AtomicBoolean pending = new AtomicBoolean();
+  // Only used on the EDT
+  private long lastRefreshNanos;
+
+  public RefreshScheduler(Runnable refresh, int intervalMillis) {
+    if (refresh == null || intervalMillis < 0) {
+      throw new IllegalArgumentException("Invalid refresh scheduler");
+    }
+    this.refresh = refresh;
+    this.intervalNanos = intervalMillis * 1000000L;
+    this.timer = new Timer(intervalMillis, e -> run());
+    this.timer.setRepeats(false);
+    this.lastRefreshNanos = System.nanoTime() - intervalNanos;
+  }
+
+  // Asks for a refresh within the interval
+  public void request() {
+    if (intervalNanos == 0 && SwingUtilities.isEventDispatchThread()) {
+      // Also covers a refresh that another thread has queued already
+      pending.set(true);
+      run();
+      return;
+    }
+    if (pending.compareAndSet(false, true)) {
+      if (SwingUtilities.isEventDispatchThread()) {
+        schedule();
+      } else {
+        SwingUtilities.invokeLater(this::schedule);
+      }
+    }
+  }
+
+  // Runs the pending refresh now, if there is one, and waits for it
+  public void flush() {
+    if (!pending.get()) {
+      return;
+    }
+    onEventDispatchThread(() -> {
+      timer.stop();
+      run();
+    });
+  }
+
+  // Drops the pending refresh, if there is one
+  public void cancel() {
+    onEventDispatchThread(() -> {
+      timer.stop();
+      pending.set(false);
+    });
+  }
+
+  public int getIntervalMillis() {
+    return (int) (intervalNanos / 1000000L);
+  }
+
+  public boolean isPending() {
+    return pending.get();
+  }
+
+  private void schedule() {
+    if (intervalNanos == 0) {
+      run();
+      return;
+    }
+    long remaining = lastRefreshNanos + intervalNanos - System.nanoTime();
+    timer.setInitialDelay((int) Math.max(0, remaining / 1000000L));
+    timer.restart();
+  }
+
+  private static void onEventDispatchThread(Runnable action) {
+    if (SwingUtilities.isEventDispatchThread()) {
+      action.run();
+      return;
+    }
+    try {
+      SwingUtilities.invokeAndWait(action);
+    } catch (InterruptedException e) {
+      // The action still runs on the EDT later
+      Thread.currentThread().interrupt();
+    } catch (InvocationTargetException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  private void run() {
+    // A request made while refreshing schedules the next refresh
+    if (pending.getAndSet(false)) {
+      lastRefreshNanos = System.nanoTime();
+      refresh.run();
+    }
+  }
+
+}
@@ -0,0 +1,94 @@
+package model;
+
+/**
+ * The categories a transaction can have.
+ *
+ * The model stores a category as its ordinal in a one-byte column, and
+ * indexes, aggregates and rollups keep one entry per category in ordinal
+ * order, so the order of the constants must not change. Category words are
+ * converted to and from Category only where text enters or leaves the model:
+ * user input, filters built from user input, CSV files and the table.
+ */
+public enum Category {
+  FOOD("food"),
+  TRAVEL("travel"),
+  BILLS("bills"),
+  ENTERTAINMENT("entertainment"),
+  OTHER("other");
+
+  // values() copies the array on every call
+  private static final Category[] VALUES = values();
+
+  private final String name;
+
+  Category(String name) {
+    this.name = name;
+  }
+
+  // The category word in lower case, as shown in the table
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+
+  /**
+   * Returns the category of a category word in any letter case, or null if
+   * the word is not a valid category. Compares character by character and
+   * folds ASCII letters only, so it allocates nothing and does not depend on
+   * the default locale.
+   */
+  public static Category fromName(String name) {
+    if (name == null) {
+      return null;
+    }
+    for (Category category : VALUES) {
+      if (category.matches(name)) {
+        return category;
+      }
+    }
+    return null;
+  }
+
+  // Like fromName, but rejects invalid words
+  static Category parse(String name) {
+    Category category = fromName(name);
+    if (category == null) {
+      throw new IllegalArgumentException("The category is not valid.");
+    }
+    return category;
+  }
+
+  static Category of(byte code) {
+    return VALUES[code];
+  }
+
+  static int count() {
+    return VALUES.length;
+  }
+
+  byte code() {
+    return (byte) ordinal();
+  }
+
+  private boolean matches(String word) {
+    int length = name.length();
+    if (word.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      char c = word.charAt(i);
+      if (c >= 'A' && c <= 'Z') {
+        c += 'a' - 'A';
+      }
+      if (c != name.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
@@ -1,16 +1,43 @@
 package model;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.CopyOnWriteArrayList;
 
-public class ExpenseTrackerModel {
+public class ExpenseTrackerModel implements Closeable {
 
   //encapsulation - data integrity
-  private List<Transaction> transactions;
+  private TransactionStore transactions;
+  // Copy-on-write, so changes can be fired from any thread without locking;
+  // listeners are added rarely
+  private final CopyOnWriteArrayList<TransactionListener> listeners = new CopyOnWriteArrayList<>();
 
   public ExpenseTrackerModel() {
-    transactions = new ArrayList<>(); 
+    this(StorageType.HEAP);
+  }
+
+  public ExpenseTrackerModel(StorageType storageType) {
+    transactions = new TransactionStore(storageType);
+  }
+
+  /**
+   * Creates a persistent model that restores the transactions journaled in
+   * the given directory and journals every later add and remove there.
+   * Journal failures while adding or removing are thrown as UncheckedIOException.
+   */
+  public ExpenseTrackerModel(StorageType storageType, Path journalDirectory, JournalOptions options)
+      throws IOException {
+    if (journalDirectory == null || options == null) {
+      throw new IllegalArgumentException("The journal directory and options must be non-null.");
+    }
+    transactions = new TransactionStore(storageType);
+    transactions.openJournal(journalDirectory, options);
+  }
+
+  public ExpenseTrackerModel(Path journalDirectory) throws IOException {
+    this(StorageType.HEAP, journalDirectory, JournalOptions.DEFAULT);
   }
 
   public void addTransaction(Transaction t) {
@@ -18,16 +45,168 @@ public class ExpenseTrackerModel {
     if (t == null) {
       throw new IllegalArgumentException("The new transaction must be non-null.");
     }
-    transactions.add(t);
+    // The store assigns the transaction its ID
+    long id = transactions.add(t);
+    fireChanged(TransactionChangeEvent.Type.INSERTED, id, 1);
+  }
+
+  /**
+   * Adds the transactions as one batch: they receive consecutive IDs, in the
+   * order of the collection, and become visible to readers together. If any
+   * transaction is null or was added before, none of them is added.
+   */
+  public void addTransactions(Collection<Transaction> newTransactions) {
+    if (newTransactions == null) {
+      throw new IllegalArgumentException("The new transactions must be non-null.");
+    }
+    Transaction[] batch = newTransactions.toArray(new Transaction[0]);
+    int claimed = 0;
+    try {
+      for (Transaction t : batch) {
+        if (t == null) {
+          throw new IllegalArgumentException("The new transaction must be non-null.");
+        }
+        t.claim();
+        claimed++;
+      }
+    } catch (IllegalArgumentException e) {
+      for (int i = 0; i < claimed; i++) {
+        batch[i].release();
+      }
+      throw e;
+    }
+
+    int count = batch.length;
+    if (count == 0) {
+      return;
+    }
+    double[] amounts = new double[count];
+    byte[] categoryCodes = new byte[count];
+    long[] timestamps = new long[count];
+    for (int i = 0; i < count; i++) {
+      amounts[i] = batch[i].getAmount();
+      categoryCodes[i] = batch[i].getCategoryCode();
+      timestamps[i] = batch[i].getTimestampMillis();
+    }
+    long firstId;
+    try {
+      firstId = transactions.addAll(amounts, categoryCodes, timestamps, 0, count);
+    } catch (RuntimeException e) {
+      for (Transaction t : batch) {
+        t.release();
+      }
+      throw e;
+    }
+    for (int i = 0; i < count; i++) {
+      batch[i].assignId(firstId + i);
+    }
+    fireChanged(TransactionChangeEvent.Type.BATCH_INSERTED, firstId, count);
+  }
+
+  // Appends rows that were already validated as one batch; used by TransactionFiles
+  void addRows(double[] amounts, byte[] categoryCodes, long[] timestamps, int offset, int count) {
+    long firstId = transactions.addAll(amounts, categoryCodes, timestamps, offset, count);
+    fireChanged(TransactionChangeEvent.Type.BATCH_INSERTED, firstId, count);
   }
 
   public void removeTransaction(Transaction t) {
-    transactions.remove(t);
+    // Only remove the transaction if it is the one stored under its ID
+    if (t != null && t.equals(transactions.get(t.getId()))) {
+      removeTransaction(t.getId());
+    }
+  }
+
+  public boolean removeTransaction(long id) {
+    int row = transactions.remove(id);
+    if (row < 0) {
+      return false;
+    }
+    if (!listeners.isEmpty()) {
+      fire(new TransactionChangeEvent(this, TransactionChangeEvent.Type.REMOVED, id, 1, row));
+    }
+    return true;
+  }
+
+  /**
+   * Registers a listener that is notified after every add and remove, on the
+   * thread that made the change and after the change is visible to readers.
+   * An exception thrown by a listener is passed on to the caller that made the
+   * change, which has been made nonetheless.
+   */
+  public void addTransactionListener(TransactionListener listener) {
+    if (listener == null) {
+      throw new IllegalArgumentException("The listener must be non-null.");
+    }
+    listeners.add(listener);
+  }
+
+  public void removeTransactionListener(TransactionListener listener) {
+    listeners.remove(listener);
+  }
+
+  // Fires an insert event; no event is created while nobody listens
+  private void fireChanged(TransactionChangeEvent.Type type, long firstId, int count) {
+    if (!listeners.isEmpty()) {
+      fire(new TransactionChangeEvent(this, type, firstId, count, transactions.rowOf((int) firstId)));
+    }
+  }
+
+  private void fire(TransactionChangeEvent event) {
+    for (TransactionListener listener : listeners) {
+      listener.transactionsChanged(event);
+    }
+  }
+
+  // Returns the transaction with the given ID, or null if there is none
+  public Transaction getTransaction(long id) {
+    return transactions.get(id);
+  }
+
+  public Transaction getTransactionAt(int index) {
+    return transactions.getAt(index);
   }
 
-  public List<Transaction> getTransactions() {
+  // Returns the row position of the transaction with the given ID, or -1
+  public int indexOf(long id) {
+    return transactions.indexOf(id);
+  }
+
+  /**
+   * Returns the total, count, per-category totals and smallest and largest
+   * amount of the transactions in O(1); they are kept up to date on every
+   * add and remove.
+   */
+  public TransactionSummary getSummary() {
+    return transactions.summary();
+  }
+
+  /**
+   * Returns the spend per category and day, for reports over date ranges;
+   * kept up to date on every add and remove.
+   */
+  public SpendRollups getRollups() {
+    return transactions.rollups();
+  }
+
+  public int getTransactionCount() {
+    return transactions.size();
+  }
+
+  public TransactionSnapshot getTransactions() {
     //encapsulation - data integrity
-    return Collections.unmodifiableList(new ArrayList<>(transactions));
+    // The snapshot is immutable and shares the store's arrays, so no copy is made
+    return transactions.snapshot();
+  }
+
+  // Forces every journaled change to disk; does nothing for an in-memory model
+  public void sync() throws IOException {
+    transactions.sync();
+  }
+
+  // Syncs and closes the journal; does nothing for an in-memory model
+  @Override
+  public void close() throws IOException {
+    transactions.close();
   }
 
 }
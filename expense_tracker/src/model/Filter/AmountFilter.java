@@ -1,9 +1,11 @@
 package model.Filter;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 import model.Transaction;
+import model.TransactionSnapshot;
 import controller.InputValidation;
 
 public class AmountFilter implements TransactionFilter{
@@ -20,6 +22,10 @@ public class AmountFilter implements TransactionFilter{
     }
     @Override
     public List<Transaction> filter(List<Transaction> transactions){
+        if (ParallelFiltering.isParallel(transactions.size())) {
+            // Large lists: find the positions in parallel, then collect them in order
+            return TransactionFilter.collect(transactions, filterRows(transactions));
+        }
         List<Transaction> filteredTransactions = new ArrayList<>();
         for(Transaction transaction : transactions){
             // Your solution could use a different comparison here.
@@ -29,5 +35,35 @@ public class AmountFilter implements TransactionFilter{
         }
         return filteredTransactions;
     }
+
+    @Override
+    public void filterRows(List<Transaction> transactions, int start, int end, BitSet rows) {
+        if (transactions instanceof TransactionSnapshot) {
+            // Answer from the model's amount index in time proportional to the matches
+            ((TransactionSnapshot) transactions).findAmount(amountFilter, start, end, rows);
+        } else {
+            for (int row = start; row < end; row++) {
+                if (transactions.get(row).getAmount() == amountFilter) {
+                    rows.set(row);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean matches(List<Transaction> transactions, int row) {
+        if (transactions instanceof TransactionSnapshot) {
+            return ((TransactionSnapshot) transactions).getAmount(row) == amountFilter;
+        }
+        return transactions.get(row).getAmount() == amountFilter;
+    }
+
+    @Override
+    public int estimateMatches(List<Transaction> transactions) {
+        if (transactions instanceof TransactionSnapshot) {
+            return ((TransactionSnapshot) transactions).countAmount(amountFilter);
+        }
+        return transactions.size();
+    }
     
 }
@@ -0,0 +1,58 @@
+package model.Filter;
+
+import java.util.BitSet;
+import java.util.List;
+
+import model.Transaction;
+import model.TransactionSnapshot;
+
+/**
+ * Passes the transactions whose amount lies between a minimum and a maximum, both inclusive.
+ */
+public class AmountRangeFilter implements TransactionFilter {
+    private double minAmount;
+    private double maxAmount;
+
+    public AmountRangeFilter(double minAmount, double maxAmount) {
+        if (Double.isNaN(minAmount) || Double.isNaN(maxAmount) || minAmount > maxAmount) {
+            throw new IllegalArgumentException("Invalid amount range filter");
+        }
+        this.minAmount = minAmount;
+        this.maxAmount = maxAmount;
+    }
+
+    @Override
+    public List<Transaction> filter(List<Transaction> transactions) {
+        return TransactionFilter.collect(transactions, filterRows(transactions));
+    }
+
+    @Override
+    public void filterRows(List<Transaction> transactions, int start, int end, BitSet rows) {
+        if (transactions instanceof TransactionSnapshot) {
+            // Walk the sorted amount index between the two bounds
+            ((TransactionSnapshot) transactions).findAmountRange(minAmount, maxAmount, start, end, rows);
+        } else {
+            for (int row = start; row < end; row++) {
+                if (matches(transactions, row)) {
+                    rows.set(row);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean matches(List<Transaction> transactions, int row) {
+        double amount = transactions instanceof TransactionSnapshot
+            ? ((TransactionSnapshot) transactions).getAmount(row)
+            : transactions.get(row).getAmount();
+        return amount >= minAmount && amount <= maxAmount;
+    }
+
+    @Override
+    public int estimateMatches(List<Transaction> transactions) {
+        if (transactions instanceof TransactionSnapshot) {
+            return ((TransactionSnapshot) transactions).countAmountRange(minAmount, maxAmount);
+        }
+        return transactions.size();
+    }
+}
@@ -0,0 +1,73 @@
+package model.Filter;
+
+import java.util.BitSet;
+import java.util.List;
+
+import model.Transaction;
+
+/**
+ * Passes the transactions that pass every one of its filters.
+ *
+ * The filter with the smallest estimated match count is evaluated first. If
+ * it can use an index, its matches are the only rows that are tested against
+ * the remaining filters; otherwise all filters are tested in one pass over the
+ * rows, cheapest first. No intermediate lists are built either way.
+ */
+public class AndFilter implements TransactionFilter {
+    private TransactionFilter[] filters;
+
+    public AndFilter(TransactionFilter... filters) {
+        this.filters = CompositeFilters.checkFilters(filters);
+    }
+
+    @Override
+    public List<Transaction> filter(List<Transaction> transactions) {
+        return TransactionFilter.collect(transactions, filterRows(transactions));
+    }
+
+    @Override
+    public void filterRows(List<Transaction> transactions, int start, int end, BitSet rows) {
+        int[] estimates = new int[filters.length];
+        TransactionFilter[] plan = CompositeFilters.bySelectivity(filters, transactions, estimates);
+        if (estimates[0] < transactions.size()) {
+            // Candidates of the range, relative to its start
+            BitSet candidates = new BitSet(end - start);
+            plan[0].filterRows(transactions.subList(start, end), 0, end - start, candidates);
+            for (int row = candidates.nextSetBit(0); row >= 0; row = candidates.nextSetBit(row + 1)) {
+                if (matchesAll(plan, 1, transactions, start + row)) {
+                    rows.set(start + row);
+                }
+            }
+        } else {
+            for (int row = start; row < end; row++) {
+                if (matchesAll(plan, 0, transactions, row)) {
+                    rows.set(row);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean matches(List<Transaction> transactions, int row) {
+        return matchesAll(filters, 0, transactions, row);
+    }
+
+    @Override
+    public int estimateMatches(List<Transaction> transactions) {
+        int estimate = transactions.size();
+        for (TransactionFilter filter : filters) {
+            estimate = Math.min(estimate, filter.estimateMatches(transactions));
+        }
+        return estimate;
+    }
+
+    private static boolean matchesAll(TransactionFilter[] filters, int from,
+                                      List<Transaction> transactions, int row) {
+        for (int i = from; i < filters.length; i++) {
+            if (!filters[i].matches(transactions, row)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
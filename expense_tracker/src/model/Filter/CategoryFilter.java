@@ -1,13 +1,17 @@
 package model.Filter;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
+import model.Category;
 import model.Transaction;
+import model.TransactionSnapshot;
 import controller.InputValidation;
 
 public class CategoryFilter implements TransactionFilter {
-    private String categoryFilter;
+    // Rows are compared by category, not by category word
+    private Category categoryFilter;
 
     public CategoryFilter(String categoryFilter) {
         // Since the CategoryFilter constructor is public, 
@@ -15,21 +19,63 @@ public class CategoryFilter implements TransactionFilter {
         if(!InputValidation.isValidCategory(categoryFilter)){
             throw new IllegalArgumentException("Invalid category filter");
         }else{
-            this.categoryFilter = categoryFilter;
+            this.categoryFilter = Category.fromName(categoryFilter);
         }
     }
 
+    public CategoryFilter(Category categoryFilter) {
+        if (categoryFilter == null) {
+            throw new IllegalArgumentException("Invalid category filter");
+        }
+        this.categoryFilter = categoryFilter;
+    }
+
     @Override
     public List<Transaction> filter(List<Transaction> transactions) {
 
+        if (ParallelFiltering.isParallel(transactions.size())) {
+            // Large lists: find the positions in parallel, then collect them in order
+            return TransactionFilter.collect(transactions, filterRows(transactions));
+        }
+
         List<Transaction> filteredTransactions = new ArrayList<>();
 
         for (Transaction transaction : transactions) {
-            if (transaction.getCategory().equalsIgnoreCase(categoryFilter)) {
+            if (transaction.getCategoryType() == categoryFilter) {
                 filteredTransactions.add(transaction);
             }
         }
 
         return filteredTransactions;
     }
+
+    @Override
+    public void filterRows(List<Transaction> transactions, int start, int end, BitSet rows) {
+        if (transactions instanceof TransactionSnapshot) {
+            // Answer from the model's category index in time proportional to the matches
+            ((TransactionSnapshot) transactions).findCategory(categoryFilter, start, end, rows);
+        } else {
+            for (int row = start; row < end; row++) {
+                if (transactions.get(row).getCategoryType() == categoryFilter) {
+                    rows.set(row);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean matches(List<Transaction> transactions, int row) {
+        if (transactions instanceof TransactionSnapshot) {
+            return ((TransactionSnapshot) transactions).getCategoryType(row) == categoryFilter;
+        }
+        return transactions.get(row).getCategoryType() == categoryFilter;
+    }
+
+    @Override
+    public int estimateMatches(List<Transaction> transactions) {
+        if (transactions instanceof TransactionSnapshot) {
+            return ((TransactionSnapshot) transactions).countCategory(categoryFilter);
+        }
+        return transactions.size();
+    }
 }
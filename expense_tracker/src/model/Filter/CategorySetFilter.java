@@ -0,0 +1,73 @@
+package model.Filter;
+
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.List;
+
+import model.Category;
+import model.Transaction;
+import model.TransactionSnapshot;
+
+/**
+ * Passes the transactions whose category is one of several categories.
+ */
+public class CategorySetFilter implements TransactionFilter {
+    private EnumSet<Category> categories;
+
+    public CategorySetFilter(String... categories) {
+        if (categories == null || categories.length == 0) {
+            throw new IllegalArgumentException("Invalid category filter");
+        }
+        this.categories = EnumSet.noneOf(Category.class);
+        for (String category : categories) {
+            Category parsed = Category.fromName(category);
+            if (parsed == null) {
+                throw new IllegalArgumentException("Invalid category filter");
+            }
+            this.categories.add(parsed);
+        }
+    }
+
+    @Override
+    public List<Transaction> filter(List<Transaction> transactions) {
+        return TransactionFilter.collect(transactions, filterRows(transactions));
+    }
+
+    @Override
+    public void filterRows(List<Transaction> transactions, int start, int end, BitSet rows) {
+        if (transactions instanceof TransactionSnapshot) {
+            // The posting lists of different categories never overlap
+            TransactionSnapshot snapshot = (TransactionSnapshot) transactions;
+            for (Category category : categories) {
+                snapshot.findCategory(category, start, end, rows);
+            }
+        } else {
+            for (int row = start; row < end; row++) {
+                if (matches(transactions, row)) {
+                    rows.set(row);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean matches(List<Transaction> transactions, int row) {
+        Category rowCategory = transactions instanceof TransactionSnapshot
+            ? ((TransactionSnapshot) transactions).getCategoryType(row)
+            : transactions.get(row).getCategoryType();
+        return categories.contains(rowCategory);
+    }
+
+    @Override
+    public int estimateMatches(List<Transaction> transactions) {
+        if (transactions instanceof TransactionSnapshot) {
+            TransactionSnapshot snapshot = (TransactionSnapshot) transactions;
+            int count = 0;
+            for (Category category : categories) {
+                count += snapshot.countCategory(category);
+            }
+            return count;
+        }
+        return transactions.size();
+    }
+}
@@ -0,0 +1,47 @@
+package model.Filter;
+
+import java.util.Arrays;
+import java.util.List;
+
+import model.Transaction;
+
+/**
+ * Helpers shared by AndFilter and OrFilter.
+ */
+final class CompositeFilters {
+
+    private CompositeFilters() {
+    }
+
+    static TransactionFilter[] checkFilters(TransactionFilter[] filters) {
+        if (filters == null || filters.length == 0) {
+            throw new IllegalArgumentException("Invalid filter");
+        }
+        for (TransactionFilter filter : filters) {
+            if (filter == null) {
+                throw new IllegalArgumentException("Invalid filter");
+            }
+        }
+        return filters.clone();
+    }
+
+    /**
+     * Returns the filters ordered by their estimated match count, smallest
+     * first, and stores the matching estimates in 'estimates'.
+     */
+    static TransactionFilter[] bySelectivity(TransactionFilter[] filters, List<Transaction> transactions,
+                                             int[] estimates) {
+        long[] keyed = new long[filters.length];
+        for (int i = 0; i < filters.length; i++) {
+            // Estimate in the high bits, position in the low bits
+            keyed[i] = ((long) filters[i].estimateMatches(transactions) << 32) | i;
+        }
+        Arrays.sort(keyed);
+        TransactionFilter[] plan = new TransactionFilter[filters.length];
+        for (int i = 0; i < filters.length; i++) {
+            plan[i] = filters[(int) keyed[i]];
+            estimates[i] = (int) (keyed[i] >>> 32);
+        }
+        return plan;
+    }
+}
@@ -0,0 +1,46 @@
+package model.Filter;
+
+import java.util.BitSet;
+import java.util.List;
+
+import model.Transaction;
+import model.TransactionSnapshot;
+
+/**
+ * Passes the transactions whose timestamp lies in [fromMillis, toMillis).
+ */
+public class DateRangeFilter implements TransactionFilter {
+    private long fromMillis;
+    private long toMillis;
+
+    public DateRangeFilter(long fromMillis, long toMillis) {
+        if (fromMillis > toMillis) {
+            throw new IllegalArgumentException("Invalid date range filter");
+        }
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+    }
+
+    @Override
+    public List<Transaction> filter(List<Transaction> transactions) {
+        return TransactionFilter.collect(transactions, filterRows(transactions));
+    }
+
+    @Override
+    public void filterRows(List<Transaction> transactions, int start, int end, BitSet rows) {
+        // There is no timestamp index, so scan the timestamp column
+        for (int row = start; row < end; row++) {
+            if (matches(transactions, row)) {
+                rows.set(row);
+            }
+        }
+    }
+
+    @Override
+    public boolean matches(List<Transaction> transactions, int row) {
+        long timestamp = transactions instanceof TransactionSnapshot
+            ? ((TransactionSnapshot) transactions).getTimestampMillis(row)
+            : transactions.get(row).getTimestampMillis();
+        return timestamp >= fromMillis && timestamp < toMillis;
+    }
+}
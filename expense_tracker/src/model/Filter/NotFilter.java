@@ -0,0 +1,47 @@
+package model.Filter;
+
+import java.util.BitSet;
+import java.util.List;
+
+import model.Transaction;
+
+/**
+ * Passes the transactions that its filter rejects.
+ */
+public class NotFilter implements TransactionFilter {
+    private TransactionFilter negatedFilter;
+
+    public NotFilter(TransactionFilter negatedFilter) {
+        if (negatedFilter == null) {
+            throw new IllegalArgumentException("Invalid filter");
+        }
+        this.negatedFilter = negatedFilter;
+    }
+
+    @Override
+    public List<Transaction> filter(List<Transaction> transactions) {
+        return TransactionFilter.collect(transactions, filterRows(transactions));
+    }
+
+    @Override
+    public void filterRows(List<Transaction> transactions, int start, int end, BitSet rows) {
+        // Let the negated filter use its index, then set the runs of rows
+        // between its matches. Matches are relative to the start.
+        int count = end - start;
+        BitSet excluded = new BitSet(count);
+        negatedFilter.filterRows(transactions.subList(start, end), 0, count, excluded);
+        for (int row = excluded.nextClearBit(0); row < count; ) {
+            int runEnd = excluded.nextSetBit(row);
+            if (runEnd < 0) {
+                runEnd = count;
+            }
+            rows.set(start + row, start + runEnd);
+            row = excluded.nextClearBit(runEnd);
+        }
+    }
+
+    @Override
+    public boolean matches(List<Transaction> transactions, int row) {
+        return !negatedFilter.matches(transactions, row);
+    }
+}
@@ -0,0 +1,79 @@
+package model.Filter;
+
+import java.util.BitSet;
+import java.util.List;
+
+import model.Transaction;
+
+/**
+ * Passes the transactions that pass at least one of its filters.
+ *
+ * Filters that can use an index add their matches directly. The remaining
+ * filters are tested together in one pass, and only on rows that no
+ * indexed filter has matched yet.
+ */
+public class OrFilter implements TransactionFilter {
+    private TransactionFilter[] filters;
+
+    public OrFilter(TransactionFilter... filters) {
+        this.filters = CompositeFilters.checkFilters(filters);
+    }
+
+    @Override
+    public List<Transaction> filter(List<Transaction> transactions) {
+        return TransactionFilter.collect(transactions, filterRows(transactions));
+    }
+
+    @Override
+    public void filterRows(List<Transaction> transactions, int start, int end, BitSet rows) {
+        int[] estimates = new int[filters.length];
+        TransactionFilter[] plan = CompositeFilters.bySelectivity(filters, transactions, estimates);
+        // Matches of the range, relative to its start
+        List<Transaction> range = transactions.subList(start, end);
+        BitSet matched = new BitSet(end - start);
+        int scanned = plan.length;
+        for (int i = 0; i < plan.length; i++) {
+            if (estimates[i] >= transactions.size()) {
+                scanned = i;
+                break;
+            }
+            plan[i].filterRows(range, 0, end - start, matched);
+        }
+        if (scanned < plan.length) {
+            for (int row = 0; row < end - start; row++) {
+                if (!matched.get(row) && matchesAny(plan, scanned, transactions, start + row)) {
+                    matched.set(row);
+                }
+            }
+        }
+        for (int row = matched.nextSetBit(0); row >= 0; ) {
+            int runEnd = matched.nextClearBit(row);
+            rows.set(start + row, start + runEnd);
+            row = matched.nextSetBit(runEnd);
+        }
+    }
+
+    @Override
+    public boolean matches(List<Transaction> transactions, int row) {
+        return matchesAny(filters, 0, transactions, row);
+    }
+
+    @Override
+    public int estimateMatches(List<Transaction> transactions) {
+        long estimate = 0;
+        for (TransactionFilter filter : filters) {
+            estimate += filter.estimateMatches(transactions);
+        }
+        return (int) Math.min(estimate, transactions.size());
+    }
+
+    private static boolean matchesAny(TransactionFilter[] filters, int from,
+                                      List<Transaction> transactions, int row) {
+        for (int i = from; i < filters.length; i++) {
+            if (filters[i].matches(transactions, row)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
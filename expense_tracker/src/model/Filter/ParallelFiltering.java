@@ -0,0 +1,125 @@
+package model.Filter;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import model.Transaction;
+
+/**
+ * Runs filters over large lists on the common fork-join pool.
+ *
+ * Lists with at least getThreshold() transactions are split into ranges that
+ * are filtered in parallel. Each range is filtered as a sub-list (for
+ * snapshots, a sub-snapshot that still uses the indexes), so its matches only
+ * take space for the range, and is then copied into one shared result.
+ * Smaller lists are filtered on the calling thread. The threshold defaults to
+ * DEFAULT_THRESHOLD and can be set with the system property
+ * "expensetracker.parallelFilterThreshold" or with setThreshold.
+ *
+ * Filters run in parallel must not keep state between calls; all filters in
+ * this package are stateless.
+ */
+public final class ParallelFiltering {
+
+    public static final int DEFAULT_THRESHOLD = 200000;
+
+    // Ranges smaller than this are filtered by a single task
+    private static final int MIN_RANGE_SIZE = 1 << 15;
+
+    private static volatile int threshold =
+        Integer.getInteger("expensetracker.parallelFilterThreshold", DEFAULT_THRESHOLD);
+
+    private ParallelFiltering() {
+    }
+
+    public static int getThreshold() {
+        return threshold;
+    }
+
+    public static void setThreshold(int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Invalid parallel filter threshold");
+        }
+        ParallelFiltering.threshold = threshold;
+    }
+
+    public static boolean isParallel(int size) {
+        return size >= threshold && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    /**
+     * Sets the bit of every position in [start, end) whose transaction passes
+     * the filter, in parallel if the range is large enough.
+     */
+    public static void filterRows(TransactionFilter filter, List<Transaction> transactions,
+                                  int start, int end, BitSet rows) {
+        if (!isParallel(end - start)) {
+            filter.filterRows(transactions, start, end, rows);
+            return;
+        }
+        int rangeSize = Math.max(MIN_RANGE_SIZE,
+            (end - start) / (ForkJoinPool.getCommonPoolParallelism() * 4));
+        // The shared words start at the word that holds start
+        int base = start & ~63;
+        long[] words = new long[(end - base + 63) >>> 6];
+        ForkJoinPool.commonPool().invoke(new RangeTask(filter, transactions, base, start, end, rangeSize, words));
+        BitSet matched = BitSet.valueOf(words);
+        if (base == 0) {
+            rows.or(matched);
+            return;
+        }
+        for (int row = matched.nextSetBit(0); row >= 0; ) {
+            int runEnd = matched.nextClearBit(row);
+            rows.set(base + row, base + runEnd);
+            row = matched.nextSetBit(runEnd);
+        }
+    }
+
+    /**
+     * Filters a range and stores the matches in the words that hold its
+     * positions, counted from base. Ranges are split at multiples of 64, so every word belongs
+     * to a single range and the tasks never write the same word.
+     */
+    private static final class RangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final TransactionFilter filter;
+        private final List<Transaction> transactions;
+        private final int base;
+        private final int start;
+        private final int end;
+        private final int rangeSize;
+        private final long[] words;
+
+        RangeTask(TransactionFilter filter, List<Transaction> transactions, int base, int start, int end,
+                  int rangeSize, long[] words) {
+            this.filter = filter;
+            this.transactions = transactions;
+            this.base = base;
+            this.start = start;
+            this.end = end;
+            this.rangeSize = rangeSize;
+            this.words = words;
+        }
+
+        @Override
+        protected void compute() {
+            int middle = ((start + end) >>> 1) & ~63;
+            if (end - start <= rangeSize || middle <= start) {
+                // Filter the range from the start of its first word, so that
+                // the matches line up with the shared words
+                int first = start & ~63;
+                BitSet rows = new BitSet(end - first);
+                filter.filterRows(transactions.subList(first, end), start - first, end - first, rows);
+                long[] matched = rows.toLongArray();
+                System.arraycopy(matched, 0, words, (first - base) >>> 6, matched.length);
+                return;
+            }
+            invokeAll(new RangeTask(filter, transactions, base, start, middle, rangeSize, words),
+                new RangeTask(filter, transactions, base, middle, end, rangeSize, words));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package model.Filter;
+
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+import model.Transaction;
+
+/**
+ * Lazily reports the positions of the transactions that pass a filter.
+ *
+ * Rows are filtered in blocks, only when the consumer asks for the next match,
+ * so a consumer that stops early (for example after the first N matches) never
+ * filters the rest of the list. Blocks start small and grow, which keeps the
+ * first matches cheap and later blocks efficient. Indexed filters use their
+ * index for each block.
+ */
+final class RowSpliterator implements Spliterator.OfInt {
+
+    private static final int FIRST_BLOCK_SIZE = 256;
+    private static final int MAX_BLOCK_SIZE = 16384;
+    // Ranges smaller than this are not split for parallel streams
+    private static final int MIN_SPLIT_SIZE = 4096;
+
+    private final TransactionFilter filter;
+    private final List<Transaction> transactions;
+    // Next row to filter, and the end of this spliterator's range
+    private int next;
+    private final int end;
+    private int blockSize;
+    // Matches of the current block, and the next one to report
+    private final BitSet block;
+    private int row;
+
+    RowSpliterator(TransactionFilter filter, List<Transaction> transactions, int start, int end) {
+        this.filter = filter;
+        this.transactions = transactions;
+        this.next = start;
+        this.end = end;
+        this.blockSize = FIRST_BLOCK_SIZE;
+        this.block = new BitSet();
+        this.row = -1;
+    }
+
+    @Override
+    public boolean tryAdvance(IntConsumer action) {
+        while (row < 0) {
+            if (next >= end) {
+                return false;
+            }
+            int blockEnd = Math.min(next + blockSize, end);
+            block.clear();
+            filter.filterRows(transactions, next, blockEnd, block);
+            row = block.nextSetBit(next);
+            next = blockEnd;
+            blockSize = Math.min(blockSize * 2, MAX_BLOCK_SIZE);
+        }
+        int current = row;
+        row = block.nextSetBit(row + 1);
+        action.accept(current);
+        return true;
+    }
+
+    @Override
+    public Spliterator.OfInt trySplit() {
+        // Only split rows that have not been filtered yet
+        if (row >= 0 || end - next < MIN_SPLIT_SIZE * 2) {
+            return null;
+        }
+        int middle = (next + end) >>> 1;
+        RowSpliterator prefix = new RowSpliterator(filter, transactions, next, middle);
+        next = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return end - next;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | SORTED | NONNULL;
+    }
+
+    @Override
+    public Comparator<? super Integer> getComparator() {
+        // Positions are reported in ascending order
+        return null;
+    }
+}
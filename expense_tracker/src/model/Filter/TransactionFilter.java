@@ -1,6 +1,12 @@
 package model.Filter;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import model.Transaction;
 
@@ -13,4 +19,92 @@ public interface TransactionFilter {
 
   public List<Transaction> filter(List<Transaction> transactions);
 
+  /**
+   * Returns the positions of the transactions that pass the filter, so callers
+   * can highlight or look up the matching rows without searching for them.
+   *
+   * Large lists are filtered in parallel (see ParallelFiltering).
+   */
+  public default BitSet filterRows(List<Transaction> transactions) {
+    BitSet rows = new BitSet(transactions.size());
+    ParallelFiltering.filterRows(this, transactions, 0, transactions.size(), rows);
+    return rows;
+  }
+
+  /**
+   * Sets the bit of every position in [start, end) whose transaction passes the filter.
+   *
+   * This default maps the result of filter back to positions with indexOf,
+   * which is fast for model snapshots; implementations should override it to
+   * test each position directly.
+   */
+  public default void filterRows(List<Transaction> transactions, int start, int end, BitSet rows) {
+    for (Transaction t : filter(transactions.subList(start, end))) {
+      int row = transactions.indexOf(t);
+      if (row >= start && row < end) {
+        rows.set(row);
+      }
+    }
+  }
+
+  /**
+   * Returns the positions of the transactions that pass the filter, in
+   * ascending order, evaluated lazily.
+   *
+   * Nothing is filtered until the stream is consumed, and rows are filtered
+   * in blocks as the consumer pulls matches, so short-circuiting operations
+   * such as limit or findFirst stop early. Chain further filters with and(...)
+   * or by testing matches(transactions, row) on the positions; neither builds
+   * an intermediate list.
+   */
+  public default IntStream rows(List<Transaction> transactions) {
+    return StreamSupport.intStream(new RowSpliterator(this, transactions, 0, transactions.size()), false);
+  }
+
+  /**
+   * Returns the transactions that pass the filter, in list order, evaluated
+   * lazily (see rows).
+   */
+  public default Stream<Transaction> stream(List<Transaction> transactions) {
+    return rows(transactions).mapToObj(transactions::get);
+  }
+
+  /**
+   * Returns a filter that passes the transactions passing both this filter
+   * and the other one.
+   */
+  public default TransactionFilter and(TransactionFilter other) {
+    return new AndFilter(this, other);
+  }
+
+  /**
+   * Tests the transaction at one position. Composite filters use this to
+   * check candidate rows in a single pass.
+   */
+  public default boolean matches(List<Transaction> transactions, int row) {
+    return !filter(Collections.singletonList(transactions.get(row))).isEmpty();
+  }
+
+  /**
+   * Returns an upper bound on the number of transactions that pass the filter.
+   *
+   * Filters that can look up their matches in the model's indexes return the
+   * size of that lookup; all others return the size of the list. Composite
+   * filters use this to decide which part to look up and which parts to test.
+   */
+  public default int estimateMatches(List<Transaction> transactions) {
+    return transactions.size();
+  }
+
+  /**
+   * Collects the transactions at the given positions.
+   */
+  public static List<Transaction> collect(List<Transaction> transactions, BitSet rows) {
+    List<Transaction> filteredTransactions = new ArrayList<>(rows.cardinality());
+    for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+      filteredTransactions.add(transactions.get(row));
+    }
+    return filteredTransactions;
+  }
+
 }
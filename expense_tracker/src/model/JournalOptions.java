@@ -0,0 +1,51 @@
+package model;
+
+/**
+ * Settings of the journal that makes an ExpenseTrackerModel persistent.
+ *
+ * syncBatchSize is the number of records written before the journal forces
+ * them to disk, so that concurrent writers share one fsync (group commit).
+ * syncIntervalMillis bounds how long a record may wait for that fsync; 0 only
+ * syncs on full batches and on close. Records that were not synced yet can be
+ * lost if the machine crashes, so a batch size of 1 makes every change
+ * durable before it returns.
+ *
+ * snapshotInterval is the number of records after which the journal writes a
+ * snapshot of the model and starts a new log, which bounds recovery time.
+ */
+public final class JournalOptions {
+
+  public static final JournalOptions DEFAULT = new JournalOptions(256, 50, 500000);
+
+  private final int syncBatchSize;
+  private final long syncIntervalMillis;
+  private final int snapshotInterval;
+
+  public JournalOptions(int syncBatchSize, long syncIntervalMillis, int snapshotInterval) {
+    if (syncBatchSize < 1) {
+      throw new IllegalArgumentException("The sync batch size must be positive.");
+    }
+    if (syncIntervalMillis < 0) {
+      throw new IllegalArgumentException("The sync interval must not be negative.");
+    }
+    if (snapshotInterval < 1) {
+      throw new IllegalArgumentException("The snapshot interval is not valid.");
+    }
+    this.syncBatchSize = syncBatchSize;
+    this.syncIntervalMillis = syncIntervalMillis;
+    this.snapshotInterval = snapshotInterval;
+  }
+
+  public int getSyncBatchSize() {
+    return syncBatchSize;
+  }
+
+  public long getSyncIntervalMillis() {
+    return syncIntervalMillis;
+  }
+
+  public int getSnapshotInterval() {
+    return snapshotInterval;
+  }
+
+}
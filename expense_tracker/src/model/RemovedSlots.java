@@ -0,0 +1,451 @@
+package model;
+
+import java.util.BitSet;
+
+/**
+ * Immutable set of the removed slots of a TransactionStore.
+ *
+ * The set is a radix tree: leaves are bitmaps of 1024 slots, and each inner
+ * node has 32 children. Every node also keeps the number of removed slots in
+ * front of each of its children (or words), so a search can step straight to
+ * the right child.
+ * Adding a slot copies only the path from the root to its leaf and shares the
+ * rest with the old set, so a removal costs O(log slots) no matter how many
+ * slots were removed before, and snapshots can keep older sets cheaply. The
+ * tree only grows as high as the largest slot requires.
+ *
+ * Besides membership, the set translates between slots and row positions:
+ * countBefore gives the number of removed slots in front of a slot, and
+ * slotOf finds the slot of a row. Both walk one path of the tree. Two sets
+ * derived from each other share most of their nodes, which lets
+ * firstDifference and lastDifference skip the shared parts.
+ */
+final class RemovedSlots {
+
+  static final RemovedSlots NONE = new RemovedSlots(null, 0);
+
+  // Leaves hold 1 << LEAF_BITS slots, inner nodes 1 << FANOUT_BITS children
+  private static final int LEAF_BITS = 10;
+  private static final int LEAF_WORDS = 1 << (LEAF_BITS - 6);
+  private static final int FANOUT_BITS = 5;
+  private static final int FANOUT = 1 << FANOUT_BITS;
+
+  // Null if no slot is removed
+  private final Node root;
+  // Levels of inner nodes above the leaves
+  private final int height;
+
+  private RemovedSlots(Node root, int height) {
+    this.root = root;
+    this.height = height;
+  }
+
+  /**
+   * Returns the set of the slots whose bits are set.
+   */
+  static RemovedSlots of(BitSet removed) {
+    if (removed.isEmpty()) {
+      return NONE;
+    }
+    int height = heightFor(removed.length() - 1);
+    Node root = null;
+    for (int slot = removed.nextSetBit(0); slot >= 0; slot = removed.nextSetBit(slot + 1)) {
+      root = addTo(root, height, slot);
+    }
+    return new RemovedSlots(root, height);
+  }
+
+  int size() {
+    return root == null ? 0 : root.count();
+  }
+
+  boolean contains(int slot) {
+    if (root == null || slot < 0 || slot >= capacity(height)) {
+      return false;
+    }
+    Node node = root;
+    for (int level = height; level > 0; level--) {
+      node = node.children[childIndex(slot, level)];
+      if (node == null) {
+        return false;
+      }
+    }
+    return (node.words[wordIndex(slot)] & (1L << slot)) != 0;
+  }
+
+  /**
+   * Returns the number of removed slots below the given one.
+   */
+  int countBefore(int slot) {
+    if (root == null || slot <= 0) {
+      return 0;
+    }
+    if (slot >= capacity(height)) {
+      return root.count();
+    }
+    int count = 0;
+    Node node = root;
+    for (int level = height; level > 0; level--) {
+      int child = childIndex(slot, level);
+      count += node.before[child];
+      node = node.children[child];
+      if (node == null) {
+        return count;
+      }
+    }
+    int word = wordIndex(slot);
+    return count + node.before[word] + Long.bitCount(node.words[word] & ((1L << slot) - 1));
+  }
+
+  /**
+   * Returns the slot of row 'index': the index-th slot, counting from 0,
+   * that is not removed.
+   */
+  int slotOf(int index) {
+    if (root == null) {
+      return index;
+    }
+    long capacity = capacity(height);
+    long live = capacity - root.count();
+    if (index >= live) {
+      return (int) (capacity + index - live);
+    }
+    Node node = root;
+    long base = 0;
+    for (int level = height; level > 0; level--) {
+      int shift = shift(level);
+      int child = find(node.before, index, shift, FANOUT);
+      index -= (int) (((long) child << shift) - node.before[child]);
+      base += (long) child << shift;
+      node = node.children[child];
+      if (node == null) {
+        return (int) (base + index);
+      }
+    }
+    int word = find(node.before, index, 6, LEAF_WORDS);
+    index -= (word << 6) - node.before[word];
+    return (int) (base + (word << 6) + select(~node.words[word], index));
+  }
+
+  // Returns the last part (child or word) of a node whose first kept slot
+  // is at or before the kept slot 'index'. Part i holds 1 << shift slots, of
+  // which (i << shift) - before[i] in front of it are kept; as that is never
+  // more than i << shift, the search can start at index >>> shift.
+  private static int find(int[] before, int index, int shift, int parts) {
+    int part = Math.min(index >>> shift, parts - 1);
+    while (part + 1 < parts && index >= ((long) (part + 1) << shift) - before[part + 1]) {
+      part++;
+    }
+    return part;
+  }
+
+  /**
+   * Returns the smallest removed slot at or above the given one, or -1 if
+   * there is none.
+   */
+  int next(int slot) {
+    if (root == null || slot >= capacity(height)) {
+      return -1;
+    }
+    return (int) next(root, height, 0, Math.max(slot, 0));
+  }
+
+  /**
+   * Returns a set that also contains the given slot.
+   */
+  RemovedSlots with(int slot) {
+    if (contains(slot)) {
+      return this;
+    }
+    Node grown = root;
+    int grownHeight = height;
+    while (slot >= capacity(grownHeight)) {
+      grown = lift(grown);
+      grownHeight++;
+    }
+    return new RemovedSlots(copyWith(grown, grownHeight, slot), grownHeight);
+  }
+
+  /**
+   * Returns the smallest slot removed in only one of the sets, or -1 if they
+   * are equal.
+   */
+  static int firstDifference(RemovedSlots a, RemovedSlots b) {
+    int height = Math.max(a.height, b.height);
+    return (int) firstDifference(a.rootAt(height), b.rootAt(height), height, 0);
+  }
+
+  /**
+   * Returns the largest slot below the limit removed in only one of the sets,
+   * or -1 if there is none.
+   */
+  static int lastDifference(RemovedSlots a, RemovedSlots b, int limit) {
+    int height = Math.max(a.height, b.height);
+    return (int) lastDifference(a.rootAt(height), b.rootAt(height), height, 0, limit);
+  }
+
+  // ---- Tree ----
+
+  /**
+   * A leaf (words) or an inner node (children). Nodes are never modified
+   * once the set holding them is shared.
+   */
+  private static final class Node {
+
+    final Node[] children;
+    final long[] words;
+    // Removed slots in front of each child or word; the last entry is the
+    // number of removed slots below this node
+    final int[] before;
+
+    Node(Node[] children, long[] words, int[] before) {
+      this.children = children;
+      this.words = words;
+      this.before = before;
+    }
+
+    static Node leaf() {
+      return new Node(null, new long[LEAF_WORDS], new int[LEAF_WORDS + 1]);
+    }
+
+    static Node inner() {
+      return new Node(new Node[FANOUT], null, new int[FANOUT + 1]);
+    }
+
+    int count() {
+      return before[before.length - 1];
+    }
+
+    // True if the child or word holds a removed slot
+    boolean hasRemoved(int part) {
+      return before[part + 1] > before[part];
+    }
+
+    Node copy() {
+      return new Node(children == null ? null : children.clone(), words == null ? null : words.clone(),
+          before.clone());
+    }
+
+    // Counts one more removed slot in the child or word
+    void countRemoved(int part) {
+      for (int i = part + 1; i < before.length; i++) {
+        before[i]++;
+      }
+    }
+  }
+
+  private static long capacity(int height) {
+    return 1L << (LEAF_BITS + FANOUT_BITS * height);
+  }
+
+  // Number of low slot bits below the children of an inner node at this level
+  private static int shift(int level) {
+    return LEAF_BITS + FANOUT_BITS * (level - 1);
+  }
+
+  private static int childIndex(int slot, int level) {
+    return (slot >>> shift(level)) & (FANOUT - 1);
+  }
+
+  private static int wordIndex(int slot) {
+    return (slot >>> 6) & (LEAF_WORDS - 1);
+  }
+
+  // Position of the set bit with the given rank in the word, counting from 0
+  private static int select(long word, int rank) {
+    int position = 0;
+    for (int width = 32; width >= 8; width >>>= 1) {
+      int low = Long.bitCount(word & ((1L << width) - 1));
+      if (rank >= low) {
+        rank -= low;
+        word >>>= width;
+        position += width;
+      }
+    }
+    for (int i = 0; i < rank; i++) {
+      word &= word - 1;
+    }
+    return position + Long.numberOfTrailingZeros(word);
+  }
+
+  private static int heightFor(int slot) {
+    int height = 0;
+    while (slot >= capacity(height)) {
+      height++;
+    }
+    return height;
+  }
+
+  // The root, with single-child nodes added on top to reach the given height
+  private Node rootAt(int targetHeight) {
+    Node node = root;
+    for (int level = height; level < targetHeight; level++) {
+      node = lift(node);
+    }
+    return node;
+  }
+
+  private static Node lift(Node node) {
+    if (node == null) {
+      return null;
+    }
+    Node lifted = Node.inner();
+    lifted.children[0] = node;
+    for (int i = 1; i <= FANOUT; i++) {
+      lifted.before[i] = node.count();
+    }
+    return lifted;
+  }
+
+  // Returns a copy of the node with the slot added; the slot must be missing
+  private static Node copyWith(Node node, int level, int slot) {
+    if (level == 0) {
+      Node leaf = node == null ? Node.leaf() : node.copy();
+      leaf.words[wordIndex(slot)] |= 1L << slot;
+      leaf.countRemoved(wordIndex(slot));
+      return leaf;
+    }
+    int child = childIndex(slot, level);
+    Node inner = node == null ? Node.inner() : node.copy();
+    inner.children[child] = copyWith(inner.children[child], level - 1, slot);
+    inner.countRemoved(child);
+    return inner;
+  }
+
+  // Adds the slot in place; only for nodes that are not shared yet
+  private static Node addTo(Node node, int level, int slot) {
+    if (level == 0) {
+      if (node == null) {
+        node = Node.leaf();
+      }
+      node.words[wordIndex(slot)] |= 1L << slot;
+      node.countRemoved(wordIndex(slot));
+    } else {
+      if (node == null) {
+        node = Node.inner();
+      }
+      int child = childIndex(slot, level);
+      node.children[child] = addTo(node.children[child], level - 1, slot);
+      node.countRemoved(child);
+    }
+    return node;
+  }
+
+  // Smallest removed slot >= from below the node, which covers the slots
+  // from base on; -1 if there is none
+  private static long next(Node node, int level, long base, long from) {
+    if (level == 0) {
+      for (int word = (int) (Math.max(from - base, 0) >>> 6); word < LEAF_WORDS; word++) {
+        long bits = node.words[word];
+        long wordBase = base + word * 64;
+        if (from > wordBase) {
+          bits &= -1L << (from - wordBase);
+        }
+        if (bits != 0) {
+          return wordBase + Long.numberOfTrailingZeros(bits);
+        }
+      }
+      return -1;
+    }
+    long span = 1L << shift(level);
+    for (int child = (int) (Math.max(from - base, 0) / span); child < FANOUT; child++) {
+      if (node.hasRemoved(child)) {
+        long found = next(node.children[child], level - 1, base + child * span, from);
+        if (found >= 0) {
+          return found;
+        }
+      }
+    }
+    return -1;
+  }
+
+  // Largest removed slot < limit below the node; -1 if there is none
+  private static long previous(Node node, int level, long base, long limit) {
+    if (limit <= base) {
+      return -1;
+    }
+    if (level == 0) {
+      for (int word = (int) (Math.min(limit - base - 1, (LEAF_WORDS << 6) - 1) >>> 6); word >= 0; word--) {
+        long bits = node.words[word];
+        long wordBase = base + word * 64;
+        if (limit - wordBase < 64) {
+          bits &= (1L << (limit - wordBase)) - 1;
+        }
+        if (bits != 0) {
+          return wordBase + 63 - Long.numberOfLeadingZeros(bits);
+        }
+      }
+      return -1;
+    }
+    long span = 1L << shift(level);
+    for (int child = (int) Math.min((limit - base - 1) / span, FANOUT - 1); child >= 0; child--) {
+      if (node.hasRemoved(child)) {
+        long found = previous(node.children[child], level - 1, base + child * span, limit);
+        if (found >= 0) {
+          return found;
+        }
+      }
+    }
+    return -1;
+  }
+
+  private static long firstDifference(Node a, Node b, int level, long base) {
+    if (a == b) {
+      return -1;
+    }
+    if (a == null || b == null) {
+      return next(a == null ? b : a, level, base, base);
+    }
+    if (level == 0) {
+      for (int word = 0; word < LEAF_WORDS; word++) {
+        long differing = a.words[word] ^ b.words[word];
+        if (differing != 0) {
+          return base + word * 64 + Long.numberOfTrailingZeros(differing);
+        }
+      }
+      return -1;
+    }
+    long span = 1L << shift(level);
+    for (int child = 0; child < FANOUT; child++) {
+      long found = firstDifference(a.children[child], b.children[child], level - 1, base + child * span);
+      if (found >= 0) {
+        return found;
+      }
+    }
+    return -1;
+  }
+
+  private static long lastDifference(Node a, Node b, int level, long base, long limit) {
+    if (a == b || limit <= base) {
+      return -1;
+    }
+    if (a == null || b == null) {
+      return previous(a == null ? b : a, level, base, limit);
+    }
+    if (level == 0) {
+      for (int word = LEAF_WORDS - 1; word >= 0; word--) {
+        long differing = a.words[word] ^ b.words[word];
+        long wordBase = base + word * 64;
+        if (limit <= wordBase) {
+          continue;
+        }
+        if (limit - wordBase < 64) {
+          differing &= (1L << (limit - wordBase)) - 1;
+        }
+        if (differing != 0) {
+          return wordBase + 63 - Long.numberOfLeadingZeros(differing);
+        }
+      }
+      return -1;
+    }
+    long span = 1L << shift(level);
+    for (int child = FANOUT - 1; child >= 0; child--) {
+      long found = lastDifference(a.children[child], b.children[child], level - 1, base + child * span, limit);
+      if (found >= 0) {
+        return found;
+      }
+    }
+    return -1;
+  }
+
+}
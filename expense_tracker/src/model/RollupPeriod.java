@@ -0,0 +1,10 @@
+package model;
+
+/**
+ * Length of the buckets in a spend report. Weeks start on Monday.
+ */
+public enum RollupPeriod {
+  DAY,
+  WEEK,
+  MONTH
+}
@@ -0,0 +1,128 @@
+package model;
+
+import java.util.BitSet;
+import java.util.TreeMap;
+
+/**
+ * Maintains the aggregates of a TransactionStore as rows are added and
+ * removed, and publishes them as an immutable TransactionSummary after every
+ * change.
+ *
+ * Sums use Neumaier's compensated summation, and removing a row adds its
+ * negated amount, so the error stays at a few ulps of the total instead of
+ * growing with the number of changes. A sum is reset to exactly zero when its
+ * last row is removed. The smallest and largest amounts come from a sorted
+ * count of the amounts, which only changes when an amount is first added or
+ * last removed.
+ */
+class RunningAggregates {
+
+  private final int categoryCount;
+  // Guarded by this. Each sum is kept as a running sum and its compensation.
+  private int count;
+  private double sum;
+  private double compensation;
+  private final int[] categoryCounts;
+  private final double[] categorySums;
+  private final double[] categoryCompensations;
+  private final TreeMap<Double, int[]> amountCounts;
+
+  private volatile TransactionSummary summary;
+
+  RunningAggregates(int categoryCount) {
+    this.categoryCount = categoryCount;
+    this.categoryCounts = new int[categoryCount];
+    this.categorySums = new double[categoryCount];
+    this.categoryCompensations = new double[categoryCount];
+    this.amountCounts = new TreeMap<>();
+    this.summary = TransactionSummary.EMPTY;
+  }
+
+  TransactionSummary summary() {
+    return summary;
+  }
+
+  synchronized void add(double amount, byte categoryCode) {
+    include(amount, categoryCode);
+    publish();
+  }
+
+  synchronized void addAll(double[] amounts, byte[] categoryCodes, int offset, int count) {
+    for (int i = offset; i < offset + count; i++) {
+      include(amounts[i], categoryCodes[i]);
+    }
+    publish();
+  }
+
+  synchronized void remove(double amount, byte categoryCode) {
+    exclude(amount, categoryCode);
+    publish();
+  }
+
+  /**
+   * Adds the rows of the columns below slotCount that are not removed;
+   * used after recovery.
+   */
+  synchronized void addAll(TransactionColumns columns, int slotCount, BitSet removed) {
+    for (int slot = removed.nextClearBit(0); slot < slotCount; slot = removed.nextClearBit(slot + 1)) {
+      include(columns.amount(slot), columns.category(slot));
+    }
+    publish();
+  }
+
+  private void include(double amount, byte categoryCode) {
+    count++;
+    addToTotal(amount);
+    categoryCounts[categoryCode]++;
+    addToCategory(categoryCode, amount);
+    int[] withAmount = amountCounts.get(amount);
+    if (withAmount == null) {
+      amountCounts.put(amount, new int[] {1});
+    } else {
+      withAmount[0]++;
+    }
+  }
+
+  private void exclude(double amount, byte categoryCode) {
+    if (--count == 0) {
+      sum = 0;
+      compensation = 0;
+    } else {
+      addToTotal(-amount);
+    }
+    if (--categoryCounts[categoryCode] == 0) {
+      categorySums[categoryCode] = 0;
+      categoryCompensations[categoryCode] = 0;
+    } else {
+      addToCategory(categoryCode, -amount);
+    }
+    int[] withAmount = amountCounts.get(amount);
+    if (--withAmount[0] == 0) {
+      amountCounts.remove(amount);
+    }
+  }
+
+  private void addToTotal(double value) {
+    double t = sum + value;
+    compensation += Math.abs(sum) >= Math.abs(value) ? (sum - t) + value : (value - t) + sum;
+    sum = t;
+  }
+
+  private void addToCategory(int code, double value) {
+    double s = categorySums[code];
+    double t = s + value;
+    categoryCompensations[code] += Math.abs(s) >= Math.abs(value) ? (s - t) + value : (value - t) + s;
+    categorySums[code] = t;
+  }
+
+  private void publish() {
+    double[] totals = new double[categoryCount];
+    for (int i = 0; i < categoryCount; i++) {
+      totals[i] = categorySums[i] + categoryCompensations[i];
+    }
+    boolean empty = amountCounts.isEmpty();
+    summary = new TransactionSummary(count, sum + compensation, totals, categoryCounts.clone(),
+        empty ? Double.NaN : amountCounts.firstKey(), empty ? Double.NaN : amountCounts.lastKey());
+  }
+
+}
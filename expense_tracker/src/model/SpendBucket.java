@@ -0,0 +1,43 @@
+package model;
+
+import java.time.LocalDate;
+
+/**
+ * Total spend and number of transactions between two dates, both inclusive.
+ */
+public final class SpendBucket {
+
+  private final LocalDate start;
+  private final LocalDate end;
+  private final double total;
+  private final int count;
+
+  SpendBucket(LocalDate start, LocalDate end, double total, int count) {
+    this.start = start;
+    this.end = end;
+    this.total = total;
+    this.count = count;
+  }
+
+  public LocalDate getStart() {
+    return start;
+  }
+
+  public LocalDate getEnd() {
+    return end;
+  }
+
+  public double getTotal() {
+    return total;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  @Override
+  public String toString() {
+    return start + ".." + end + ": " + total + " (" + count + ")";
+  }
+
+}
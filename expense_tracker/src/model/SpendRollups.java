@@ -0,0 +1,284 @@
+package model;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Spend per category and day, kept up to date as transactions are added and
+ * removed, for reports over arbitrary date ranges.
+ *
+ * Each category keeps Fenwick trees over the days of its transactions (in
+ * the time zone used to display timestamps), one per segment of about three
+ * years that has transactions. Adding or removing a transaction takes
+ * O(log segments + log days), and the total of a date range also takes
+ * O(1) per segment it spans. Weekly and monthly reports are built from
+ * range queries, one per bucket.
+ */
+public final class SpendRollups {
+
+  private final ZoneId zone;
+  // Guarded by this
+  private final DayTree[] categories;
+
+  SpendRollups(int categoryCount, ZoneId zone) {
+    this.zone = zone;
+    this.categories = new DayTree[categoryCount];
+    for (int i = 0; i < categoryCount; i++) {
+      categories[i] = new DayTree();
+    }
+  }
+
+  synchronized void add(double amount, byte categoryCode, long timestamp) {
+    categories[categoryCode].add(dayOf(timestamp), amount, 1);
+  }
+
+  synchronized void addAll(double[] amounts, byte[] categoryCodes, long[] timestamps, int offset, int count) {
+    for (int i = offset; i < offset + count; i++) {
+      categories[categoryCodes[i]].add(dayOf(timestamps[i]), amounts[i], 1);
+    }
+  }
+
+  synchronized void remove(double amount, byte categoryCode, long timestamp) {
+    categories[categoryCode].add(dayOf(timestamp), -amount, -1);
+  }
+
+  /**
+   * Adds the rows of the columns below slotCount that are not removed;
+   * used after recovery.
+   */
+  synchronized void addAll(TransactionColumns columns, int slotCount, BitSet removed) {
+    for (int slot = removed.nextClearBit(0); slot < slotCount; slot = removed.nextClearBit(slot + 1)) {
+      categories[columns.category(slot)].add(dayOf(columns.timestamp(slot)), columns.amount(slot), 1);
+    }
+  }
+
+  private long dayOf(long timestamp) {
+    return LocalDate.ofInstant(Instant.ofEpochMilli(timestamp), zone).toEpochDay();
+  }
+
+  /**
+   * Returns the total spend in the category between the dates, both inclusive.
+   */
+  public double getTotal(String category, LocalDate from, LocalDate to) {
+    return getTotal(Category.parse(category), from, to);
+  }
+
+  public synchronized double getTotal(Category category, LocalDate from, LocalDate to) {
+    checkRange(from, to);
+    return categories[category.ordinal()].sum(from.toEpochDay(), to.toEpochDay());
+  }
+
+  /**
+   * Returns the total spend in all categories between the dates, both inclusive.
+   */
+  public synchronized double getTotal(LocalDate from, LocalDate to) {
+    checkRange(from, to);
+    double total = 0;
+    for (DayTree tree : categories) {
+      total += tree.sum(from.toEpochDay(), to.toEpochDay());
+    }
+    return total;
+  }
+
+  /**
+   * Returns the number of transactions in the category between the dates,
+   * both inclusive.
+   */
+  public int getCount(String category, LocalDate from, LocalDate to) {
+    return getCount(Category.parse(category), from, to);
+  }
+
+  public synchronized int getCount(Category category, LocalDate from, LocalDate to) {
+    checkRange(from, to);
+    return categories[category.ordinal()].count(from.toEpochDay(), to.toEpochDay());
+  }
+
+  /**
+   * Returns the spend in the category per day, week or month between the
+   * dates. The first and last buckets are cut off at the dates, so the
+   * bucket totals add up to getTotal(category, from, to).
+   */
+  public List<SpendBucket> getBuckets(String category, RollupPeriod period, LocalDate from, LocalDate to) {
+    return getBuckets(Category.parse(category), period, from, to);
+  }
+
+  public synchronized List<SpendBucket> getBuckets(Category category, RollupPeriod period,
+                                                   LocalDate from, LocalDate to) {
+    checkRange(from, to);
+    return buckets(new DayTree[] {categories[category.ordinal()]}, period, from, to);
+  }
+
+  /**
+   * Returns the spend in all categories per day, week or month between the dates.
+   */
+  public synchronized List<SpendBucket> getBuckets(RollupPeriod period, LocalDate from, LocalDate to) {
+    checkRange(from, to);
+    return buckets(categories, period, from, to);
+  }
+
+  private static List<SpendBucket> buckets(DayTree[] trees, RollupPeriod period, LocalDate from, LocalDate to) {
+    if (period == null) {
+      throw new IllegalArgumentException("The rollup period must be non-null.");
+    }
+    List<SpendBucket> buckets = new ArrayList<>();
+    LocalDate start = from;
+    while (!start.isAfter(to)) {
+      LocalDate end = endOfPeriod(start, period);
+      if (end.isAfter(to)) {
+        end = to;
+      }
+      double total = 0;
+      int count = 0;
+      for (DayTree tree : trees) {
+        total += tree.sum(start.toEpochDay(), end.toEpochDay());
+        count += tree.count(start.toEpochDay(), end.toEpochDay());
+      }
+      buckets.add(new SpendBucket(start, end, total, count));
+      start = end.plusDays(1);
+    }
+    return buckets;
+  }
+
+  private static LocalDate endOfPeriod(LocalDate day, RollupPeriod period) {
+    switch (period) {
+      case WEEK: return day.with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY));
+      case MONTH: return day.with(TemporalAdjusters.lastDayOfMonth());
+      default: return day;
+    }
+  }
+
+  private static void checkRange(LocalDate from, LocalDate to) {
+    if (from == null || to == null || from.isAfter(to)) {
+      throw new IllegalArgumentException("Invalid date range");
+    }
+  }
+
+  /**
+   * Spend and transaction count per day, in segments of SEGMENT_DAYS days.
+   * Only segments with transactions exist, so a few rows far from the rest,
+   * such as imported ones from the year 1, cost one segment each rather than
+   * an array over all the days in between.
+   */
+  private static final class DayTree {
+
+    private static final int SEGMENT_BITS = 10;
+    // About 2.8 years
+    private static final int SEGMENT_DAYS = 1 << SEGMENT_BITS;
+
+    // By day >> SEGMENT_BITS
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+
+    void add(long day, double amount, int count) {
+      long key = day >> SEGMENT_BITS;
+      Segment segment = segments.get(key);
+      if (segment == null) {
+        segment = new Segment();
+        segments.put(key, segment);
+      }
+      segment.add((int) (day & (SEGMENT_DAYS - 1)), amount, count);
+      if (segment.count == 0) {
+        // Also drops the residue of the removed amounts
+        segments.remove(key);
+      }
+    }
+
+    double sum(long fromDay, long toDay) {
+      long fromKey = fromDay >> SEGMENT_BITS;
+      long toKey = toDay >> SEGMENT_BITS;
+      double sum = 0;
+      for (Map.Entry<Long, Segment> entry : segments.subMap(fromKey, true, toKey, true).entrySet()) {
+        long key = entry.getKey();
+        Segment segment = entry.getValue();
+        if (key > fromKey && key < toKey) {
+          sum += segment.sum;
+        } else {
+          sum += segment.sumTo(lastIndex(key, toDay)) - segment.sumTo(firstIndex(key, fromDay) - 1);
+        }
+      }
+      return sum;
+    }
+
+    int count(long fromDay, long toDay) {
+      long fromKey = fromDay >> SEGMENT_BITS;
+      long toKey = toDay >> SEGMENT_BITS;
+      int count = 0;
+      for (Map.Entry<Long, Segment> entry : segments.subMap(fromKey, true, toKey, true).entrySet()) {
+        long key = entry.getKey();
+        Segment segment = entry.getValue();
+        if (key > fromKey && key < toKey) {
+          count += segment.count;
+        } else {
+          count += segment.countTo(lastIndex(key, toDay)) - segment.countTo(firstIndex(key, fromDay) - 1);
+        }
+      }
+      return count;
+    }
+
+    // Index in the segment of the first day of the range that it holds
+    private static int firstIndex(long key, long fromDay) {
+      return fromDay >> SEGMENT_BITS == key ? (int) (fromDay & (SEGMENT_DAYS - 1)) : 0;
+    }
+
+    // Index in the segment of the last day of the range that it holds
+    private static int lastIndex(long key, long toDay) {
+      return toDay >> SEGMENT_BITS == key ? (int) (toDay & (SEGMENT_DAYS - 1)) : SEGMENT_DAYS - 1;
+    }
+  }
+
+  /**
+   * Fenwick trees of the spend and transaction count per day of one segment,
+   * and their totals. The plain per-day values are kept too, so that a day
+   * whose last transaction is removed returns to exactly zero.
+   */
+  private static final class Segment {
+
+    private final double[] daySums = new double[DayTree.SEGMENT_DAYS];
+    private final int[] dayCounts = new int[DayTree.SEGMENT_DAYS];
+    private final double[] sumTree = new double[DayTree.SEGMENT_DAYS];
+    private final int[] countTree = new int[DayTree.SEGMENT_DAYS];
+    double sum;
+    int count;
+
+    void add(int i, double amount, int count) {
+      double newSum = daySums[i] + amount;
+      dayCounts[i] += count;
+      if (dayCounts[i] == 0) {
+        newSum = 0;
+      }
+      double delta = newSum - daySums[i];
+      daySums[i] = newSum;
+      sum += delta;
+      this.count += count;
+      for (int j = i; j < sumTree.length; j |= j + 1) {
+        sumTree[j] += delta;
+        countTree[j] += count;
+      }
+    }
+
+    // Sum of the days up to and including index i
+    double sumTo(int i) {
+      double sum = 0;
+      for (; i >= 0; i = (i & (i + 1)) - 1) {
+        sum += sumTree[i];
+      }
+      return sum;
+    }
+
+    int countTo(int i) {
+      int count = 0;
+      for (; i >= 0; i = (i & (i + 1)) - 1) {
+        count += countTree[i];
+      }
+      return count;
+    }
+  }
+
+}
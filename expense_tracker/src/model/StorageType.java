@@ -0,0 +1,17 @@
+package model;
+
+/**
+ * Where an ExpenseTrackerModel keeps its transaction columns.
+ */
+public enum StorageType {
+
+  /** Primitive arrays on the Java heap. */
+  HEAP,
+
+  /**
+   * Direct ByteBuffers outside the Java heap, for ledgers with tens of
+   * millions of rows that should not add to garbage collection work.
+   */
+  OFF_HEAP
+
+}
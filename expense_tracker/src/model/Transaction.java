@@ -3,31 +3,91 @@ package model;
 import controller.InputValidation;
 
 import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 
 public class Transaction {
 
+  // Kept so existing code can parse timestamp strings. SimpleDateFormat is not
+  // thread-safe, so timestamps are formatted with timestampFormatter instead.
   public static final SimpleDateFormat dateFormatter = new SimpleDateFormat("dd-MM-yyyy HH:mm");
-    
+
+  // Thread-safe formatter producing the same format as dateFormatter
+  public static final DateTimeFormatter timestampFormatter =
+      DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm").withZone(ZoneId.systemDefault());
+
+  // Recently formatted minutes. Timestamps are only shown to the minute, so
+  // rows added or imported within the same minute share one string.
+  private static final FormattedMinute[] formattedMinutes = new FormattedMinute[256];
+
+  // ID of a transaction that has not been added to a model yet
+  public static final long UNASSIGNED_ID = -1;
+  // ID of a transaction that a model is adding right now
+  private static final long CLAIMED_ID = -2;
+
   //final means that the variable cannot be changed
   private final double amount;
-  private final String category;
-  private final String timestamp;
+  private final byte categoryCode;
+  private final long timestampMillis;
+  // Formatted on first use, since most transactions are never displayed
+  private String timestamp;
+  // Assigned once by the model when the transaction is added. Written under
+  // the lock of claim, release and assignId but read without it, so volatile.
+  private volatile long id;
 
   public Transaction(double amount, String category) {
+    this(amount, Category.fromName(category));
+  }
+
+  public Transaction(double amount, Category category) {
     // Since this is a public constructor, perform input validation
     // to guarantee that the amount and category are both valid
     if (InputValidation.isValidAmount(amount) == false) {
 	throw new IllegalArgumentException("The amount is not valid.");
     }
-    if (InputValidation.isValidCategory(category) == false) {
+    if (category == null) {
 	throw new IllegalArgumentException("The category is not valid.");
     }
-      
+
     this.amount = amount;
-    this.category = category;
-    this.timestamp = generateTimestamp();
+    this.categoryCode = category.code();
+    this.timestampMillis = System.currentTimeMillis();
+    this.id = UNASSIGNED_ID;
+  }
+
+  // Flyweight view of a stored row; the values were validated when the row was added
+  Transaction(long id, double amount, byte categoryCode, long timestampMillis) {
+    this.id = id;
+    this.amount = amount;
+    this.categoryCode = categoryCode;
+    this.timestampMillis = timestampMillis;
+  }
+
+  public long getId() {
+    long current = id;
+    return current == CLAIMED_ID ? UNASSIGNED_ID : current;
+  }
+
+  // Called by the model's store before it assigns an ID, so that a transaction
+  // added from two threads at once is still only stored once
+  synchronized void claim() {
+    if (id != UNASSIGNED_ID) {
+      throw new IllegalArgumentException("The transaction has already been added.");
+    }
+    id = CLAIMED_ID;
+  }
+
+  // Undoes claim when a batch that included this transaction was not added
+  synchronized void release() {
+    if (id == CLAIMED_ID) {
+      id = UNASSIGNED_ID;
+    }
+  }
+
+  synchronized void assignId(long id) {
+    this.id = id;
   }
 
   public double getAmount() {
@@ -40,19 +100,97 @@ public class Transaction {
   // }
 
   public String getCategory() {
-    return category;
+    return Category.of(categoryCode).getName();
+  }
+
+  public Category getCategoryType() {
+    return Category.of(categoryCode);
+  }
+
+  byte getCategoryCode() {
+    return categoryCode;
   }
 
   // public void setCategory(String category) {
-  //   this.category = category; 
+  //   this.category = category;
   // }
-  
+
   public String getTimestamp() {
+    if (timestamp == null) {
+      timestamp = generateTimestamp();
+    }
     return timestamp;
   }
+
+  public long getTimestampMillis() {
+    return timestampMillis;
+  }
+
   //private helper method to generate timestamp
   private String generateTimestamp() {
-     return dateFormatter.format(new Date());
+    return formatTimestamp(timestampMillis);
+  }
+
+  /**
+   * Formats an epoch-millis timestamp like getTimestamp, reusing the string
+   * of a recently formatted minute. Safe to call from any thread.
+   */
+  public static String formatTimestamp(long timestampMillis) {
+    long minute = Math.floorDiv(timestampMillis, 60000L);
+    int slot = (int) (minute & (formattedMinutes.length - 1));
+    FormattedMinute cached = formattedMinutes[slot];
+    if (cached != null && cached.minute == minute) {
+      return cached.text;
+    }
+    Instant instant = Instant.ofEpochMilli(timestampMillis);
+    String text = timestampFormatter.format(instant);
+    // Some historical zone offsets are not whole minutes; one UTC minute then
+    // spans two displayed minutes, so those are not cached
+    if (timestampFormatter.getZone().getRules().getOffset(instant).getTotalSeconds() % 60 == 0) {
+      formattedMinutes[slot] = new FormattedMinute(minute, text);
+    }
+    return text;
+  }
+
+  // Immutable, so entries can be shared between threads without locking
+  private static final class FormattedMinute {
+    final long minute;
+    final String text;
+
+    FormattedMinute(long minute, String text) {
+      this.minute = minute;
+      this.text = text;
+    }
+  }
+
+  // Rows read back from the model are new flyweight objects each time,
+  // so two transactions are equal when they describe the same stored row.
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Transaction)) {
+      return false;
+    }
+    Transaction other = (Transaction) o;
+    // Transactions that are not stored yet are only equal to themselves
+    long current = id;
+    return current != UNASSIGNED_ID
+        && current != CLAIMED_ID
+        && current == other.id
+        && Double.compare(amount, other.amount) == 0
+        && categoryCode == other.categoryCode
+        && timestampMillis == other.timestampMillis;
+  }
+
+  @Override
+  public int hashCode() {
+    // Only uses the values that never change, since the ID is assigned later
+    int result = Double.hashCode(amount);
+    result = 31 * result + categoryCode;
+    result = 31 * result + Long.hashCode(timestampMillis);
+    return result;
   }
 
 }
@@ -0,0 +1,71 @@
+package model;
+
+import java.util.EventObject;
+
+/**
+ * Describes one change to the transactions of an ExpenseTrackerModel: a
+ * transaction added or removed, or a batch of transactions added together.
+ *
+ * The event only holds IDs and row positions, never the transactions, so
+ * firing it costs the same for any ledger size. Listeners that need the rows
+ * read them from the model, e.g. through a snapshot. The row position is the
+ * one the first transaction had when the change was made; while other threads
+ * are changing the model too, later changes may already have moved it.
+ */
+public final class TransactionChangeEvent extends EventObject {
+
+  private static final long serialVersionUID = 1L;
+
+  public enum Type {
+    /** One transaction was added. */
+    INSERTED,
+    /** One transaction was removed. */
+    REMOVED,
+    /** getCount transactions with consecutive IDs were added together. */
+    BATCH_INSERTED
+  }
+
+  private final Type type;
+  private final long firstId;
+  private final int count;
+  private final int index;
+
+  TransactionChangeEvent(ExpenseTrackerModel source, Type type, long firstId, int count, int index) {
+    super(source);
+    this.type = type;
+    this.firstId = firstId;
+    this.count = count;
+    this.index = index;
+  }
+
+  @Override
+  public ExpenseTrackerModel getSource() {
+    return (ExpenseTrackerModel) super.getSource();
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  // ID of the changed transaction, or of the first one of a batch
+  public long getFirstId() {
+    return firstId;
+  }
+
+  // Number of changed transactions; 1 unless the type is BATCH_INSERTED
+  public int getCount() {
+    return count;
+  }
+
+  // Row position of the changed transaction, or of the first one of a batch
+  public int getIndex() {
+    return index;
+  }
+
+  @Override
+  public String toString() {
+    return "TransactionChangeEvent[" + type + ", firstId=" + firstId + ", count=" + count
+        + ", index=" + index + "]";
+  }
+
+}
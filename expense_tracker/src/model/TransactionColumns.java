@@ -0,0 +1,164 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Column storage for transactions: an amount column, a one-byte category code
+ * column and an epoch-millis timestamp column, 17 bytes per row in total.
+ *
+ * Rows are stored in fixed-size chunks that are allocated as the ledger grows,
+ * so growing never copies existing rows and rows never move once written.
+ *
+ * Different threads may write different slots at the same time. A row becomes
+ * visible to other threads through the store, which publishes it with a volatile
+ * write after set returns; the chunk directories are volatile so that readers
+ * always see the chunk of every published row.
+ */
+abstract class TransactionColumns {
+
+  static final int CHUNK_BITS = 14;
+  static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  static TransactionColumns create(StorageType type) {
+    switch (type) {
+      case OFF_HEAP: return new DirectColumns();
+      default: return new HeapColumns();
+    }
+  }
+
+  abstract double amount(int slot);
+
+  abstract byte category(int slot);
+
+  abstract long timestamp(int slot);
+
+  /**
+   * Writes a row, allocating its chunk if needed.
+   */
+  abstract void set(int slot, double amount, byte category, long timestamp);
+
+  /**
+   * Returns a flyweight Transaction reading the given row.
+   */
+  Transaction transactionAt(int slot) {
+    return new Transaction(slot, amount(slot), category(slot), timestamp(slot));
+  }
+
+  /**
+   * Columns backed by primitive arrays on the heap.
+   */
+  private static final class HeapColumns extends TransactionColumns {
+
+    private volatile HeapChunk[] chunks = new HeapChunk[0];
+
+    @Override
+    double amount(int slot) {
+      return chunks[slot >>> CHUNK_BITS].amounts[slot & CHUNK_MASK];
+    }
+
+    @Override
+    byte category(int slot) {
+      return chunks[slot >>> CHUNK_BITS].categories[slot & CHUNK_MASK];
+    }
+
+    @Override
+    long timestamp(int slot) {
+      return chunks[slot >>> CHUNK_BITS].timestamps[slot & CHUNK_MASK];
+    }
+
+    @Override
+    void set(int slot, double amount, byte category, long timestamp) {
+      int chunk = slot >>> CHUNK_BITS;
+      HeapChunk[] current = chunks;
+      if (chunk >= current.length) {
+        current = addChunks(chunk);
+      }
+      HeapChunk target = current[chunk];
+      int offset = slot & CHUNK_MASK;
+      target.amounts[offset] = amount;
+      target.categories[offset] = category;
+      target.timestamps[offset] = timestamp;
+    }
+
+    // Only runs once per chunk, so a plain lock is enough
+    private synchronized HeapChunk[] addChunks(int chunk) {
+      HeapChunk[] current = chunks;
+      if (chunk >= current.length) {
+        HeapChunk[] grown = Arrays.copyOf(current, chunk + 1);
+        for (int i = current.length; i < grown.length; i++) {
+          grown[i] = new HeapChunk();
+        }
+        chunks = grown;
+        current = grown;
+      }
+      return current;
+    }
+  }
+
+  private static final class HeapChunk {
+    final double[] amounts = new double[CHUNK_SIZE];
+    final byte[] categories = new byte[CHUNK_SIZE];
+    final long[] timestamps = new long[CHUNK_SIZE];
+  }
+
+  /**
+   * Columns backed by direct ByteBuffers. Each chunk lays out the amount
+   * column, then the timestamp column, then the category column.
+   */
+  private static final class DirectColumns extends TransactionColumns {
+
+    private static final int TIMESTAMP_BASE = CHUNK_SIZE * Double.BYTES;
+    private static final int CATEGORY_BASE = TIMESTAMP_BASE + CHUNK_SIZE * Long.BYTES;
+    private static final int CHUNK_BYTES = CATEGORY_BASE + CHUNK_SIZE;
+
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+
+    @Override
+    double amount(int slot) {
+      return chunks[slot >>> CHUNK_BITS].getDouble((slot & CHUNK_MASK) * Double.BYTES);
+    }
+
+    @Override
+    byte category(int slot) {
+      return chunks[slot >>> CHUNK_BITS].get(CATEGORY_BASE + (slot & CHUNK_MASK));
+    }
+
+    @Override
+    long timestamp(int slot) {
+      return chunks[slot >>> CHUNK_BITS].getLong(TIMESTAMP_BASE + (slot & CHUNK_MASK) * Long.BYTES);
+    }
+
+    @Override
+    void set(int slot, double amount, byte category, long timestamp) {
+      int chunk = slot >>> CHUNK_BITS;
+      ByteBuffer[] current = chunks;
+      if (chunk >= current.length) {
+        current = addChunks(chunk);
+      }
+      // Only absolute puts are used, so threads writing different slots
+      // of the same buffer do not interfere
+      ByteBuffer buffer = current[chunk];
+      int offset = slot & CHUNK_MASK;
+      buffer.putDouble(offset * Double.BYTES, amount);
+      buffer.putLong(TIMESTAMP_BASE + offset * Long.BYTES, timestamp);
+      buffer.put(CATEGORY_BASE + offset, category);
+    }
+
+    private synchronized ByteBuffer[] addChunks(int chunk) {
+      ByteBuffer[] current = chunks;
+      if (chunk >= current.length) {
+        ByteBuffer[] grown = Arrays.copyOf(current, chunk + 1);
+        for (int i = current.length; i < grown.length; i++) {
+          grown[i] = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.nativeOrder());
+        }
+        chunks = grown;
+        current = grown;
+      }
+      return current;
+    }
+  }
+
+}
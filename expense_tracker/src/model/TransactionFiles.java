@@ -0,0 +1,431 @@
+package model;
+
+import controller.InputValidation;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Bulk import and export of transactions as CSV or in a compact binary format.
+ *
+ * CSV files have one transaction per line: amount,category[,date], where the
+ * date uses the table's "dd-MM-yyyy HH:mm" format. The first line may be a
+ * CSV_HEADER header, which is skipped; any other line is a transaction.
+ * Transactions without a date get the time of the import.
+ *
+ * Binary files hold a header (magic "ETX1", row count as a long) followed by
+ * one 17-byte row per transaction: amount, epoch-millis timestamp, category code.
+ *
+ * Imports memory-map the file and split it into segments that are parsed and
+ * validated in parallel with the InputValidation rules. Nothing is added unless
+ * every row is valid; the rows are then appended in order as a single batch.
+ * Exports stream the rows of a snapshot without creating a Transaction for each.
+ */
+public final class TransactionFiles {
+
+  private static final int BINARY_MAGIC = 0x45545831; // "ETX1"
+  private static final int BINARY_HEADER_SIZE = 12;
+  private static final int ROW_SIZE = 17;
+  // Binary timestamps must fall in the years 1 to 9999
+  private static final long MIN_TIMESTAMP = -62135596800000L;
+  private static final long MAX_TIMESTAMP = 253402300799999L;
+  public static final String CSV_HEADER = "amount,category,date";
+
+  // Bytes of CSV and rows of binary data parsed by one task
+  private static final int CSV_SEGMENT_SIZE = 16 * 1024 * 1024;
+  private static final int BINARY_SEGMENT_ROWS = 1 << 20;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private TransactionFiles() {
+  }
+
+  /**
+   * Adds every transaction in the CSV file to the model.
+   *
+   * @return the number of transactions added
+   * @throws IllegalArgumentException if a line is not a valid transaction;
+   *     nothing is added then
+   */
+  public static int importCsv(ExpenseTrackerModel model, Path file) throws IOException {
+    long now = System.currentTimeMillis();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long[] bounds = csvSegments(channel);
+      Rows[] segments = parseInParallel(bounds.length - 1, segment ->
+          parseCsv(channel, bounds[segment], bounds[segment + 1], segment == 0, now));
+      int line = 0;
+      for (Rows rows : segments) {
+        if (rows.invalid >= 0) {
+          throw new IllegalArgumentException("Invalid transaction on line " + (line + rows.invalid + 1));
+        }
+        line += rows.lines;
+      }
+      return addAll(model, segments);
+    }
+  }
+
+  /**
+   * Adds every transaction in the binary file to the model.
+   *
+   * @return the number of transactions added
+   * @throws IllegalArgumentException if a row is not a valid transaction;
+   *     nothing is added then
+   */
+  public static int importBinary(ExpenseTrackerModel model, Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < BINARY_HEADER_SIZE) {
+        throw new IllegalArgumentException("Not a transaction file: " + file);
+      }
+      MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, BINARY_HEADER_SIZE);
+      if (header.getInt() != BINARY_MAGIC) {
+        throw new IllegalArgumentException("Not a transaction file: " + file);
+      }
+      long count = header.getLong();
+      if (count < 0 || count > Integer.MAX_VALUE || size != BINARY_HEADER_SIZE + count * ROW_SIZE) {
+        throw new IllegalArgumentException("Not a transaction file: " + file);
+      }
+      int segmentCount = (int) ((count + BINARY_SEGMENT_ROWS - 1) / BINARY_SEGMENT_ROWS);
+      Rows[] segments = parseInParallel(segmentCount, segment -> {
+        long first = (long) segment * BINARY_SEGMENT_ROWS;
+        return parseBinary(channel, first, (int) Math.min(BINARY_SEGMENT_ROWS, count - first));
+      });
+      for (int segment = 0; segment < segmentCount; segment++) {
+        if (segments[segment].invalid >= 0) {
+          long row = (long) segment * BINARY_SEGMENT_ROWS + segments[segment].invalid;
+          throw new IllegalArgumentException("Invalid transaction in row " + (row + 1));
+        }
+      }
+      return addAll(model, segments);
+    }
+  }
+
+  /**
+   * Writes the transactions to a CSV file that importCsv reads back. Dates
+   * are written to the minute, like in the table.
+   */
+  public static void exportCsv(List<Transaction> transactions, Path file) throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      writer.write(CSV_HEADER);
+      writer.write('\n');
+      if (transactions instanceof TransactionSnapshot) {
+        TransactionSnapshot snapshot = (TransactionSnapshot) transactions;
+        for (int i = 0; i < snapshot.size(); i++) {
+          writeCsvLine(writer, snapshot.getAmount(i), snapshot.getCategory(i), snapshot.getTimestampMillis(i));
+        }
+      } else {
+        for (Transaction t : transactions) {
+          writeCsvLine(writer, t.getAmount(), t.getCategory(), t.getTimestampMillis());
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes the transactions to a binary file that importBinary reads back,
+   * keeping their exact timestamps.
+   */
+  public static void exportBinary(List<Transaction> transactions, Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+      buffer.putInt(BINARY_MAGIC).putLong(transactions.size());
+      if (transactions instanceof TransactionSnapshot) {
+        TransactionSnapshot snapshot = (TransactionSnapshot) transactions;
+        for (int i = 0; i < snapshot.size(); i++) {
+          if (buffer.remaining() < ROW_SIZE) {
+            write(channel, buffer);
+          }
+          buffer.putDouble(snapshot.getAmount(i)).putLong(snapshot.getTimestampMillis(i))
+              .put(snapshot.getCategoryCode(i));
+        }
+      } else {
+        for (Transaction t : transactions) {
+          if (buffer.remaining() < ROW_SIZE) {
+            write(channel, buffer);
+          }
+          buffer.putDouble(t.getAmount()).putLong(t.getTimestampMillis()).put(t.getCategoryCode());
+        }
+      }
+      write(channel, buffer);
+    }
+  }
+
+  private static void writeCsvLine(BufferedWriter writer, double amount, String category, long timestamp)
+      throws IOException {
+    writer.write(Double.toString(amount));
+    writer.write(',');
+    writer.write(category);
+    writer.write(',');
+    Transaction.timestampFormatter.formatTo(Instant.ofEpochMilli(timestamp), writer);
+    writer.write('\n');
+  }
+
+  private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  // ---- Parsing ----
+
+  /**
+   * Validated rows of one segment, or the position of its first invalid
+   * line or row.
+   */
+  private static final class Rows {
+
+    double[] amounts;
+    byte[] categoryCodes;
+    long[] timestamps;
+    int count;
+    // Lines read, and the first invalid one, relative to the segment (-1 if none)
+    int lines;
+    int invalid = -1;
+
+    Rows(int capacity) {
+      amounts = new double[capacity];
+      categoryCodes = new byte[capacity];
+      timestamps = new long[capacity];
+    }
+
+    void add(double amount, byte categoryCode, long timestamp) {
+      if (count == amounts.length) {
+        int capacity = Math.max(16, count * 2);
+        amounts = Arrays.copyOf(amounts, capacity);
+        categoryCodes = Arrays.copyOf(categoryCodes, capacity);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+      }
+      amounts[count] = amount;
+      categoryCodes[count] = categoryCode;
+      timestamps[count] = timestamp;
+      count++;
+    }
+  }
+
+  private interface SegmentParser {
+    Rows parse(int segment) throws IOException;
+  }
+
+  // Parses the segments on the common fork-join pool, keeping their order
+  private static Rows[] parseInParallel(int segmentCount, SegmentParser parser) throws IOException {
+    try {
+      return IntStream.range(0, segmentCount).parallel().mapToObj(segment -> {
+        try {
+          return parser.parse(segment);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }).toArray(Rows[]::new);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  // Adds the rows of all segments as a single batch, so that the import is
+  // atomic and listeners are notified once
+  private static int addAll(ExpenseTrackerModel model, Rows[] segments) {
+    long total = 0;
+    for (Rows rows : segments) {
+      total += rows.count;
+    }
+    if (total > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("Too many transactions: " + total);
+    }
+    if (total == 0) {
+      return 0;
+    }
+    Rows all = segments[0];
+    if (segments.length > 1) {
+      all = new Rows((int) total);
+      for (int segment = 0; segment < segments.length; segment++) {
+        Rows rows = segments[segment];
+        System.arraycopy(rows.amounts, 0, all.amounts, all.count, rows.count);
+        System.arraycopy(rows.categoryCodes, 0, all.categoryCodes, all.count, rows.count);
+        System.arraycopy(rows.timestamps, 0, all.timestamps, all.count, rows.count);
+        all.count += rows.count;
+        // Let the copied segment be collected
+        segments[segment] = null;
+      }
+    }
+    model.addRows(all.amounts, all.categoryCodes, all.timestamps, 0, all.count);
+    return all.count;
+  }
+
+  // Splits the file into segments of about CSV_SEGMENT_SIZE bytes that end at line ends
+  private static long[] csvSegments(FileChannel channel) throws IOException {
+    long size = channel.size();
+    List<Long> bounds = new ArrayList<>();
+    bounds.add(0L);
+    ByteBuffer buffer = ByteBuffer.allocate(4096);
+    long bound = 0;
+    while (bound < size) {
+      long next = Math.min(bound + CSV_SEGMENT_SIZE, size);
+      // Move forward to just after the next line break
+      while (next < size) {
+        buffer.clear();
+        int read = channel.read(buffer, next);
+        int newline = -1;
+        for (int i = 0; i < read && newline < 0; i++) {
+          if (buffer.get(i) == '\n') {
+            newline = i;
+          }
+        }
+        if (newline >= 0) {
+          next += newline + 1;
+          break;
+        }
+        next += Math.max(read, 0);
+      }
+      bound = next;
+      bounds.add(bound);
+    }
+    long[] result = new long[bounds.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = bounds.get(i);
+    }
+    return result;
+  }
+
+  private static Rows parseCsv(FileChannel channel, long start, long end, boolean firstSegment, long now)
+      throws IOException {
+    MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+    int length = map.limit();
+    Rows rows = new Rows(length / 16 + 16);
+    int lineStart = 0;
+    while (lineStart < length && rows.invalid < 0) {
+      int lineEnd = lineStart;
+      while (lineEnd < length && map.get(lineEnd) != '\n') {
+        lineEnd++;
+      }
+      boolean mayBeHeader = firstSegment && rows.lines == 0;
+      if (!parseCsvLine(map, lineStart, lineEnd, rows, now, mayBeHeader)) {
+        rows.invalid = rows.lines;
+      }
+      rows.lines++;
+      lineStart = lineEnd + 1;
+    }
+    return rows;
+  }
+
+  // Adds the transaction on the line; returns false if the line is not valid.
+  // Blank lines, and a header line with the CSV_HEADER columns if one is
+  // allowed, are skipped.
+  private static boolean parseCsvLine(ByteBuffer map, int start, int end, Rows rows, long now,
+                                      boolean mayBeHeader) {
+    String[] fields = new String[3];
+    int fieldCount = 0;
+    int fieldStart = start;
+    for (int i = start; i <= end; i++) {
+      if (i == end || map.get(i) == ',') {
+        if (fieldCount == fields.length) {
+          return false;
+        }
+        fields[fieldCount++] = field(map, fieldStart, i);
+        fieldStart = i + 1;
+      }
+    }
+    if (fieldCount == 1 && fields[0].isEmpty()) {
+      return true;
+    }
+    if (mayBeHeader && isHeader(fields, fieldCount)) {
+      return true;
+    }
+
+    double amount;
+    try {
+      amount = Double.parseDouble(fields[0]);
+    } catch (NumberFormatException e) {
+      return false;
+    }
+    if (fieldCount < 2) {
+      return false;
+    }
+    Category category = Category.fromName(fields[1]);
+    if (!InputValidation.isValidAmount(amount) || category == null) {
+      return false;
+    }
+    long timestamp = now;
+    if (fieldCount == 3 && !fields[2].isEmpty()) {
+      try {
+        timestamp = Transaction.timestampFormatter.parse(fields[2], Instant::from).toEpochMilli();
+      } catch (DateTimeParseException e) {
+        return false;
+      }
+    }
+    rows.add(amount, category.code(), timestamp);
+    return true;
+  }
+
+  // True if the fields are the column names of CSV_HEADER, in any letter
+  // case; the date column may be left out like in the rows
+  private static boolean isHeader(String[] fields, int fieldCount) {
+    String[] names = CSV_HEADER.split(",");
+    if (fieldCount < 2) {
+      return false;
+    }
+    for (int i = 0; i < fieldCount; i++) {
+      if (!fields[i].equalsIgnoreCase(names[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // Decodes a field without surrounding blanks, line breaks or quotes
+  private static String field(ByteBuffer map, int start, int end) {
+    while (start < end && isBlank(map.get(start))) {
+      start++;
+    }
+    while (end > start && isBlank(map.get(end - 1))) {
+      end--;
+    }
+    if (end - start >= 2 && map.get(start) == '"' && map.get(end - 1) == '"') {
+      start++;
+      end--;
+    }
+    byte[] bytes = new byte[end - start];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = map.get(start + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static boolean isBlank(byte b) {
+    return b == ' ' || b == '\t' || b == '\r';
+  }
+
+  private static Rows parseBinary(FileChannel channel, long firstRow, int count) throws IOException {
+    MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY,
+        BINARY_HEADER_SIZE + firstRow * ROW_SIZE, (long) count * ROW_SIZE);
+    Rows rows = new Rows(count);
+    for (int i = 0; i < count; i++) {
+      double amount = map.getDouble();
+      long timestamp = map.getLong();
+      byte categoryCode = map.get();
+      if (!InputValidation.isValidAmount(amount) || categoryCode < 0 || categoryCode >= Category.count()
+          || timestamp < MIN_TIMESTAMP || timestamp > MAX_TIMESTAMP) {
+        rows.invalid = i;
+        break;
+      }
+      rows.add(amount, categoryCode, timestamp);
+    }
+    return rows;
+  }
+
+}
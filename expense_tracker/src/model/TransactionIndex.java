@@ -0,0 +1,96 @@
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Secondary indexes over the slots of a TransactionStore: one posting list of
+ * slots per category, and a sorted map from amount to the slots with that amount.
+ * A hash map holds the same posting lists for the exact-amount lookups made on
+ * every add, so the sorted map is only touched for new amounts and ranges.
+ *
+ * The store adds each slot while publishing it, and slots are published in
+ * order, so every posting list stays sorted without any sorting or locking.
+ * Posting lists are append-only: removed transactions stay in them and are
+ * skipped at query time using the removed-slot set of the snapshot being
+ * queried. This keeps the index consistent with every snapshot at once.
+ * Removed transactions are only left out when the index is rebuilt from the
+ * journal on startup.
+ */
+class TransactionIndex {
+
+  private final PostingList[] categories;
+  private final ConcurrentSkipListMap<Double, PostingList> amounts;
+  private final ConcurrentHashMap<Double, PostingList> amountLookup;
+
+  TransactionIndex(int categoryCount) {
+    categories = new PostingList[categoryCount];
+    for (int i = 0; i < categoryCount; i++) {
+      categories[i] = new PostingList();
+    }
+    amounts = new ConcurrentSkipListMap<>();
+    amountLookup = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Adds a slot to the indexes. Only called by the thread publishing the
+   * slot, in slot order.
+   */
+  void add(int slot, byte categoryCode, double amount) {
+    categories[categoryCode].add(slot);
+    PostingList withAmount = amountLookup.get(amount);
+    if (withAmount == null) {
+      withAmount = new PostingList();
+      withAmount.add(slot);
+      amounts.put(amount, withAmount);
+      amountLookup.put(amount, withAmount);
+    } else {
+      withAmount.add(slot);
+    }
+  }
+
+  PostingList category(byte categoryCode) {
+    return categories[categoryCode];
+  }
+
+  // Returns null if no transaction ever had this amount
+  PostingList amount(double amount) {
+    return amountLookup.get(amount);
+  }
+
+  ConcurrentSkipListMap<Double, PostingList> amounts() {
+    return amounts;
+  }
+
+  /**
+   * Growable, sorted list of slots with a single appending thread.
+   *
+   * The size is volatile and written after the new entry, so a reader that
+   * reads the size first always sees that many valid entries.
+   */
+  static final class PostingList {
+
+    private int[] slots = new int[8];
+    private volatile int size;
+
+    void add(int slot) {
+      int n = size;
+      if (n == slots.length) {
+        slots = Arrays.copyOf(slots, n * 2);
+      }
+      slots[n] = slot;
+      size = n + 1;
+    }
+
+    int size() {
+      return size;
+    }
+
+    // Read the size before the array; the array is at least that long
+    int[] slots() {
+      return slots;
+    }
+  }
+
+}
@@ -0,0 +1,683 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead log that makes a TransactionStore persistent.
+ *
+ * Every add and remove is appended to the current log file as a fixed-size
+ * binary record ending in a CRC32C checksum of the record:
+ *
+ *   add:    type (1) | slot (4) | amount (8) | category (1) | timestamp (8) | crc (4)
+ *   remove: type (1) | slot (4) | crc (4)
+ *   batch:  type (1) | first slot (4) | count (4) | crc (4), followed by the
+ *           count add records of the batch
+ *
+ * The store appends adds in slot order while publishing them, and removals
+ * under its removal lock, so the log always lists changes in the order they
+ * became visible. Records are buffered and written through a FileChannel,
+ * which is forced once a batch is full or the sync interval has passed (see
+ * JournalOptions).
+ *
+ * After every snapshotInterval records the journal starts a new log file, and
+ * a background thread writes a snapshot of the store covering all older logs
+ * and then deletes them. Recovery memory-maps the snapshot and the newer logs,
+ * so it never replays more than about snapshotInterval records (plus the
+ * rest of a batch that crossed the interval). Replay is idempotent: adds and
+ * removes already in the snapshot are skipped. A torn record at the end of the
+ * last log is cut off, together with the batch it belongs to, so a batch is
+ * either restored completely or not at all.
+ *
+ * Files in the journal directory:
+ *
+ *   snapshot.bin      magic | generation | slot count | removed count |
+ *                     removed slots | rows (amount, timestamp, category) of
+ *                     the slots that are not removed, in slot order | crc
+ *   journal-N.log     magic | records; replayed in order of N, starting at
+ *                     the generation stored in the snapshot
+ */
+final class TransactionJournal implements Closeable {
+
+  private static final int LOG_MAGIC = 0x45544c31;      // "ETL1"
+  private static final int SNAPSHOT_MAGIC = 0x45545332; // "ETS2"
+  // Older snapshots that also hold the rows of removed slots
+  private static final int FULL_SNAPSHOT_MAGIC = 0x45545331; // "ETS1"
+  private static final int LOG_HEADER_SIZE = 4;
+  private static final int SNAPSHOT_HEADER_SIZE = 20;
+
+  private static final byte ADD = 1;
+  private static final byte REMOVE = 2;
+  private static final byte BATCH = 3;
+  private static final int ADD_SIZE = 26;
+  private static final int REMOVE_SIZE = 9;
+  private static final int BATCH_SIZE = 13;
+  private static final int ROW_SIZE = 17;
+
+  private static final String SNAPSHOT_FILE = "snapshot.bin";
+  private static final String SNAPSHOT_TEMP_FILE = "snapshot.tmp";
+  private static final String LOG_PREFIX = "journal-";
+  private static final String LOG_SUFFIX = ".log";
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  // Files are mapped a window at a time, since they may exceed 2 GB
+  private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+  private final Path directory;
+  private final JournalOptions options;
+  private final TransactionStore store;
+  private final ScheduledExecutorService background;
+
+  // Guarded by this
+  private final ByteBuffer buffer;
+  private final CRC32C checksum;
+  private FileChannel log;
+  private long generation;
+  // Records appended since the last fsync, and since the last new log file
+  private int unsynced;
+  private int sinceRotation;
+  private boolean snapshotPending;
+  private IOException failure;
+  private boolean closed;
+
+  private TransactionJournal(Path directory, JournalOptions options, TransactionStore store) {
+    this.directory = directory;
+    this.options = options;
+    this.store = store;
+    this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    this.checksum = new CRC32C();
+    this.background = Executors.newSingleThreadScheduledExecutor(task -> {
+      Thread thread = new Thread(task, "transaction-journal");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Restores the journaled transactions into the empty store and opens the
+   * journal for appending.
+   */
+  static TransactionJournal open(Path directory, JournalOptions options, TransactionStore store)
+      throws IOException {
+    Files.createDirectories(directory);
+    TransactionJournal journal = new TransactionJournal(directory, options, store);
+    try {
+      journal.recover();
+    } catch (IOException | RuntimeException e) {
+      journal.background.shutdownNow();
+      throw e;
+    }
+    long interval = options.getSyncIntervalMillis();
+    if (interval > 0) {
+      journal.background.scheduleWithFixedDelay(journal::syncInBackground, interval, interval,
+          TimeUnit.MILLISECONDS);
+    }
+    return journal;
+  }
+
+  synchronized void appendAdd(int slot, double amount, byte categoryCode, long timestamp) {
+    ensureWritable(ADD_SIZE);
+    int start = buffer.position();
+    buffer.put(ADD).putInt(slot).putDouble(amount).put(categoryCode).putLong(timestamp);
+    finishRecord(start);
+    afterAppend();
+  }
+
+  /**
+   * Appends the rows [offset, offset + count) of the arrays as one batch,
+   * stored in the slots starting at firstSlot.
+   */
+  synchronized void appendBatch(int firstSlot, double[] amounts, byte[] categoryCodes, long[] timestamps,
+                                int offset, int count) {
+    ensureWritable(BATCH_SIZE);
+    int start = buffer.position();
+    buffer.put(BATCH).putInt(firstSlot).putInt(count);
+    finishRecord(start);
+    for (int i = 0; i < count; i++) {
+      ensureWritable(ADD_SIZE);
+      start = buffer.position();
+      buffer.put(ADD).putInt(firstSlot + i).putDouble(amounts[offset + i]).put(categoryCodes[offset + i])
+          .putLong(timestamps[offset + i]);
+      finishRecord(start);
+    }
+    // The whole batch shares one sync
+    afterAppend();
+  }
+
+  synchronized void appendRemove(int slot) {
+    ensureWritable(REMOVE_SIZE);
+    int start = buffer.position();
+    buffer.put(REMOVE).putInt(slot);
+    finishRecord(start);
+    afterAppend();
+  }
+
+  private void ensureWritable(int recordSize) {
+    if (closed) {
+      throw new IllegalStateException("The journal is closed.");
+    }
+    if (failure != null) {
+      throw new UncheckedIOException("The journal failed earlier.", failure);
+    }
+    if (buffer.remaining() < recordSize) {
+      try {
+        writeBuffer();
+      } catch (IOException e) {
+        throw fail(e);
+      }
+    }
+  }
+
+  private void finishRecord(int start) {
+    ByteBuffer record = buffer.duplicate();
+    record.position(start).limit(buffer.position());
+    checksum.reset();
+    checksum.update(record);
+    buffer.putInt((int) checksum.getValue());
+    unsynced++;
+    sinceRotation++;
+  }
+
+  private void afterAppend() {
+    if (unsynced >= options.getSyncBatchSize()) {
+      try {
+        sync();
+      } catch (IOException e) {
+        throw fail(e);
+      }
+    }
+    if (sinceRotation >= options.getSnapshotInterval() && !snapshotPending) {
+      snapshotPending = true;
+      background.execute(this::snapshotInBackground);
+    }
+  }
+
+  private UncheckedIOException fail(IOException e) {
+    failure = e;
+    return new UncheckedIOException(e);
+  }
+
+  /**
+   * Writes and forces every record appended so far.
+   */
+  synchronized void sync() throws IOException {
+    if (closed) {
+      return;
+    }
+    writeBuffer();
+    log.force(false);
+    unsynced = 0;
+  }
+
+  private void writeBuffer() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      log.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private synchronized void syncInBackground() {
+    if (unsynced > 0 && failure == null) {
+      try {
+        sync();
+      } catch (IOException e) {
+        failure = e;
+      }
+    }
+  }
+
+  private void snapshotInBackground() {
+    try {
+      store.checkpoint();
+    } catch (IOException e) {
+      // The older logs are kept, so recovery is still complete; retry after
+      // the next snapshot interval
+    } finally {
+      synchronized (this) {
+        snapshotPending = false;
+      }
+    }
+  }
+
+  /**
+   * Starts a new log file and returns its generation. The store calls this
+   * while no change can be journaled, then snapshots everything journaled
+   * so far and passes the snapshot to writeSnapshot.
+   */
+  synchronized long rotate() throws IOException {
+    if (closed) {
+      throw new IllegalStateException("The journal is closed.");
+    }
+    sync();
+    // Open the new log first, so that if that fails the current one stays
+    // open and in use
+    FileChannel next = createLog(generation + 1);
+    FileChannel previous = log;
+    log = next;
+    generation++;
+    sinceRotation = 0;
+    previous.close();
+    return generation;
+  }
+
+  /**
+   * Writes a snapshot of the first slotCount rows, which covers every log
+   * older than the given generation, and deletes those logs.
+   */
+  void writeSnapshot(TransactionColumns columns, int slotCount, RemovedSlots removedSlots, long generation)
+      throws IOException {
+    Path temp = directory.resolve(SNAPSHOT_TEMP_FILE);
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      SnapshotWriter writer = new SnapshotWriter(channel);
+      writer.reserve(SNAPSHOT_HEADER_SIZE).putInt(SNAPSHOT_MAGIC).putLong(generation)
+          .putInt(slotCount).putInt(removedSlots.size());
+      for (int slot = removedSlots.next(0); slot >= 0; slot = removedSlots.next(slot + 1)) {
+        writer.reserve(4).putInt(slot);
+      }
+      // Removed rows are left out, so the snapshot only grows with the live rows
+      int nextRemoved = removedSlots.next(0);
+      for (int slot = 0; slot < slotCount; slot++) {
+        if (slot == nextRemoved) {
+          nextRemoved = removedSlots.next(slot + 1);
+          continue;
+        }
+        writer.reserve(ROW_SIZE).putDouble(columns.amount(slot)).putLong(columns.timestamp(slot))
+            .put(columns.category(slot));
+      }
+      writer.finish();
+      channel.force(true);
+    }
+    Files.move(temp, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    for (long older : logGenerations()) {
+      if (older < generation) {
+        Files.deleteIfExists(logFile(older));
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    background.shutdown();
+    try {
+      // Let a running snapshot finish so its files are complete
+      background.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      try {
+        if (failure == null) {
+          sync();
+        }
+      } finally {
+        closed = true;
+        log.close();
+      }
+    }
+  }
+
+  // ---- Recovery ----
+
+  private void recover() throws IOException {
+    Recovery recovery = new Recovery(store);
+    Path snapshot = directory.resolve(SNAPSHOT_FILE);
+    long firstGeneration = Files.exists(snapshot) ? readSnapshot(snapshot, recovery) : 0;
+
+    List<Long> generations = new ArrayList<>();
+    for (long candidate : logGenerations()) {
+      if (candidate >= firstGeneration) {
+        generations.add(candidate);
+      } else {
+        // Left behind by a crash right after a snapshot
+        Files.deleteIfExists(logFile(candidate));
+      }
+    }
+
+    long validEnd = 0;
+    for (int i = 0; i < generations.size(); i++) {
+      boolean last = i == generations.size() - 1;
+      validEnd = replayLog(logFile(generations.get(i)), recovery, last);
+    }
+    store.finishRestore(recovery.count, recovery.removed());
+
+    if (generations.isEmpty()) {
+      generation = firstGeneration;
+      log = createLog(generation);
+    } else {
+      generation = generations.get(generations.size() - 1);
+      log = FileChannel.open(logFile(generation), StandardOpenOption.WRITE);
+      if (validEnd < LOG_HEADER_SIZE) {
+        log.close();
+        log = createLog(generation);
+      } else {
+        // Cut off a torn record left by a crash
+        log.truncate(validEnd);
+        log.position(validEnd);
+      }
+    }
+  }
+
+  private long readSnapshot(Path file, Recovery recovery) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < SNAPSHOT_HEADER_SIZE + 4) {
+        throw new IOException("Corrupt snapshot: " + file);
+      }
+      MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, SNAPSHOT_HEADER_SIZE);
+      long generation = header.getLong(4);
+      int slotCount = header.getInt(12);
+      int removedCount = header.getInt(16);
+      long rowsStart = SNAPSHOT_HEADER_SIZE + 4L * removedCount;
+      int magic = header.getInt(0);
+      boolean compact = magic == SNAPSHOT_MAGIC;
+      int rowCount = compact ? slotCount - removedCount : slotCount;
+      if ((!compact && magic != FULL_SNAPSHOT_MAGIC) || generation < 0 || slotCount < 0
+          || removedCount < 0 || removedCount > slotCount
+          || size != rowsStart + (long) ROW_SIZE * rowCount + 4) {
+        throw new IOException("Corrupt snapshot: " + file);
+      }
+
+      // Verify the whole file before restoring any of it
+      CRC32C crc = new CRC32C();
+      for (long offset = 0; offset < size - 4; offset += WINDOW_SIZE) {
+        crc.update(channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW_SIZE, size - 4 - offset)));
+      }
+      if ((int) crc.getValue() != channel.map(FileChannel.MapMode.READ_ONLY, size - 4, 4).getInt()) {
+        throw new IOException("Corrupt snapshot: " + file);
+      }
+
+      int windowSlots = WINDOW_SIZE / 4;
+      for (int first = 0; first < removedCount; first += windowSlots) {
+        int n = Math.min(windowSlots, removedCount - first);
+        MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,
+            SNAPSHOT_HEADER_SIZE + 4L * first, 4L * n);
+        for (int i = 0; i < n; i++) {
+          recovery.markRemoved(window.getInt(), slotCount);
+        }
+      }
+      int windowRows = WINDOW_SIZE / ROW_SIZE;
+      int slot = 0;
+      for (int first = 0; first < rowCount; first += windowRows) {
+        int n = Math.min(windowRows, rowCount - first);
+        MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,
+            rowsStart + (long) ROW_SIZE * first, (long) ROW_SIZE * n);
+        for (int i = 0; i < n; i++) {
+          if (compact) {
+            slot = recovery.skipRemoved(slot);
+          }
+          double amount = window.getDouble();
+          long timestamp = window.getLong();
+          recovery.add(slot++, amount, window.get(), timestamp);
+        }
+      }
+      recovery.skipRemoved(slotCount);
+      recovery.commit();
+      return generation;
+    }
+  }
+
+  /**
+   * Replays one log and returns the end of its last complete record or batch.
+   */
+  private long replayLog(Path file, Recovery recovery, boolean last) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      LogReader reader = new LogReader(channel);
+      if (reader.size < LOG_HEADER_SIZE || reader.at(0, LOG_HEADER_SIZE).getInt() != LOG_MAGIC) {
+        if (last) {
+          // The crash happened while the log was being created
+          return 0;
+        }
+        throw new IOException("Corrupt journal: " + file);
+      }
+      long position = LOG_HEADER_SIZE;
+      // End of the last record that completed an add, remove or batch
+      long committed = position;
+      int batchRemaining = 0;
+      while (position < reader.size) {
+        int recordSize = reader.recordSize(position);
+        if (recordSize < 0) {
+          break;
+        }
+        ByteBuffer record = reader.at(position, recordSize);
+        byte type = record.get();
+        int slot = record.getInt();
+        if (type == ADD) {
+          recovery.add(slot, record.getDouble(), record.get(), record.getLong());
+          batchRemaining = Math.max(0, batchRemaining - 1);
+        } else if (batchRemaining > 0) {
+          // A batch is always followed by all of its adds
+          throw new IOException("Corrupt journal: " + file);
+        } else if (type == REMOVE) {
+          recovery.markRemoved(slot, recovery.count);
+        } else {
+          batchRemaining = record.getInt();
+          recovery.beginBatch(slot);
+        }
+        position += recordSize;
+        if (batchRemaining == 0) {
+          recovery.commit();
+          committed = position;
+        }
+      }
+      if (committed < reader.size && !last) {
+        throw new IOException("Corrupt journal: " + file);
+      }
+      return committed;
+    }
+  }
+
+  /**
+   * Reads checksummed records from a log through a moving mapped window.
+   */
+  private static final class LogReader {
+
+    private final FileChannel channel;
+    private final long size;
+    private final CRC32C crc;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    LogReader(FileChannel channel) throws IOException {
+      this.channel = channel;
+      this.size = channel.size();
+      this.crc = new CRC32C();
+    }
+
+    // Returns the bytes [position, position + length) as a buffer positioned at the first
+    ByteBuffer at(long position, int length) throws IOException {
+      if (window == null || position < windowStart
+          || position + length > windowStart + window.capacity()) {
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, size - position));
+      }
+      ByteBuffer bytes = window.duplicate();
+      bytes.position((int) (position - windowStart)).limit((int) (position - windowStart) + length);
+      return bytes;
+    }
+
+    // Returns the size of the record at the position, or -1 if it is torn or corrupt
+    int recordSize(long position) throws IOException {
+      byte type = at(position, 1).get();
+      int recordSize = type == ADD ? ADD_SIZE : type == REMOVE ? REMOVE_SIZE : type == BATCH ? BATCH_SIZE : -1;
+      if (recordSize < 0 || size - position < recordSize) {
+        return -1;
+      }
+      ByteBuffer record = at(position, recordSize);
+      ByteBuffer body = record.duplicate();
+      body.limit(record.limit() - 4);
+      crc.reset();
+      crc.update(body);
+      return (int) crc.getValue() == record.getInt(record.limit() - 4) ? recordSize : -1;
+    }
+  }
+
+  /**
+   * Restores rows into the store's columns in slot order and collects the
+   * removed slots. Rows only count once their add or batch is complete.
+   */
+  private static final class Recovery {
+
+    private final TransactionStore store;
+    private final BitSet removed;
+    // Number of committed slots, and of slots restored including an open batch
+    private int count;
+    private int restored;
+
+    Recovery(TransactionStore store) {
+      this.store = store;
+      this.removed = new BitSet();
+    }
+
+    void add(int slot, double amount, byte categoryCode, long timestamp) throws IOException {
+      if (slot < count) {
+        // Already restored from the snapshot
+        return;
+      }
+      if (slot != restored || categoryCode < 0 || categoryCode >= Category.count()) {
+        throw new IOException("Corrupt journal record for slot " + slot);
+      }
+      store.restore(slot, amount, categoryCode, timestamp);
+      restored++;
+    }
+
+    void beginBatch(int firstSlot) throws IOException {
+      if (firstSlot > count) {
+        throw new IOException("Corrupt journal record for slot " + firstSlot);
+      }
+    }
+
+    // Called after each complete record or batch
+    void commit() {
+      count = restored;
+    }
+
+    void markRemoved(int slot, int slotCount) throws IOException {
+      if (slot < 0 || slot >= slotCount) {
+        throw new IOException("Corrupt journal record for slot " + slot);
+      }
+      removed.set(slot);
+    }
+
+    // Fills the removed slots from the next one to restore up to the first
+    // slot at or after 'slot' that is not removed, and returns that slot.
+    // Removed rows are not in compact snapshots; their slots are only kept.
+    int skipRemoved(int slot) {
+      while (restored < slot || removed.get(restored)) {
+        store.restore(restored, 0, (byte) 0, 0);
+        restored++;
+      }
+      return restored;
+    }
+
+    BitSet removed() {
+      return removed;
+    }
+  }
+
+  // ---- Files ----
+
+  private FileChannel createLog(long generation) throws IOException {
+    FileChannel channel = FileChannel.open(logFile(generation), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    try {
+      ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE).putInt(LOG_MAGIC);
+      header.flip();
+      while (header.hasRemaining()) {
+        channel.write(header);
+      }
+      channel.force(true);
+      return channel;
+    } catch (IOException e) {
+      // Recovery treats a last log without a header as empty
+      channel.close();
+      throw e;
+    }
+  }
+
+  private Path logFile(long generation) {
+    return directory.resolve(LOG_PREFIX + generation + LOG_SUFFIX);
+  }
+
+  // Generations of the log files in the directory, in ascending order
+  private List<Long> logGenerations() throws IOException {
+    List<Long> generations = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, LOG_PREFIX + "*" + LOG_SUFFIX)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        try {
+          generations.add(Long.parseLong(name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length())));
+        } catch (NumberFormatException e) {
+          // Not one of ours
+        }
+      }
+    }
+    Collections.sort(generations);
+    return generations;
+  }
+
+  /**
+   * Buffers snapshot bytes, writing full buffers to the channel and keeping a
+   * running checksum of everything written.
+   */
+  private static final class SnapshotWriter {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final CRC32C crc;
+
+    SnapshotWriter(FileChannel channel) {
+      this.channel = channel;
+      this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+      this.crc = new CRC32C();
+    }
+
+    ByteBuffer reserve(int bytes) throws IOException {
+      if (buffer.remaining() < bytes) {
+        flush();
+      }
+      return buffer;
+    }
+
+    void finish() throws IOException {
+      flush();
+      buffer.putInt((int) crc.getValue());
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+
+    private void flush() throws IOException {
+      buffer.flip();
+      crc.update(buffer.duplicate());
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+  }
+
+}
@@ -0,0 +1,12 @@
+package model;
+
+import java.util.EventListener;
+
+/**
+ * Notified by an ExpenseTrackerModel after transactions are added or removed.
+ */
+public interface TransactionListener extends EventListener {
+
+  void transactionsChanged(TransactionChangeEvent event);
+
+}
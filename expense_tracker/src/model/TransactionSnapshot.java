@@ -0,0 +1,359 @@
+package model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Immutable view of the transactions of an ExpenseTrackerModel at one point in time.
+ *
+ * A snapshot shares the columns and the removed-slot set of the store it was
+ * taken from instead of copying them. This is safe because the store only ever
+ * writes rows past the end of an existing snapshot, never moves a written row,
+ * and replaces (never modifies) the RemovedSlots set on each removal. Taking a
+ * snapshot is therefore O(1), and later changes to the model are not visible
+ * through it.
+ *
+ * get returns a flyweight Transaction created on demand; the primitive getters
+ * read a single column without creating one. The find methods answer category
+ * and amount lookups from the model's indexes in time proportional to the
+ * number of matches. subList returns a snapshot too, with its own row
+ * positions, so filters can work on part of a snapshot without losing the
+ * indexes.
+ */
+public final class TransactionSnapshot extends AbstractList<Transaction> implements RandomAccess {
+
+  private final TransactionColumns columns;
+  private final TransactionIndex indexes;
+  private final int slotCount;
+  // Slots of the transactions removed before this snapshot was taken
+  private final RemovedSlots removedSlots;
+  // Row 0 of a sub-list is this row of the whole snapshot
+  private final int firstRow;
+  private final int size;
+
+  TransactionSnapshot(TransactionColumns columns, TransactionIndex indexes,
+                      int slotCount, RemovedSlots removedSlots) {
+    this(columns, indexes, slotCount, removedSlots, 0, slotCount - removedSlots.size());
+  }
+
+  private TransactionSnapshot(TransactionColumns columns, TransactionIndex indexes,
+                              int slotCount, RemovedSlots removedSlots, int firstRow, int size) {
+    this.columns = columns;
+    this.indexes = indexes;
+    this.slotCount = slotCount;
+    this.removedSlots = removedSlots;
+    this.firstRow = firstRow;
+    this.size = size;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the rows [fromIndex, toIndex) as a snapshot in O(1).
+   */
+  @Override
+  public TransactionSnapshot subList(int fromIndex, int toIndex) {
+    Objects.checkFromToIndex(fromIndex, toIndex, size);
+    return new TransactionSnapshot(columns, indexes, slotCount, removedSlots, firstRow + fromIndex,
+        toIndex - fromIndex);
+  }
+
+  @Override
+  public Transaction get(int index) {
+    return columns.transactionAt(slotAt(index));
+  }
+
+  public double getAmount(int index) {
+    return columns.amount(slotAt(index));
+  }
+
+  public String getCategory(int index) {
+    return getCategoryType(index).getName();
+  }
+
+  public Category getCategoryType(int index) {
+    return Category.of(columns.category(slotAt(index)));
+  }
+
+  public long getTimestampMillis(int index) {
+    return columns.timestamp(slotAt(index));
+  }
+
+  public long getId(int index) {
+    return slotAt(index);
+  }
+
+  byte getCategoryCode(int index) {
+    return columns.category(slotAt(index));
+  }
+
+  /**
+   * Sets the bit of every row in [start, end) whose category matches the
+   * given one, ignoring case.
+   */
+  public void findCategory(String category, int start, int end, BitSet rows) {
+    findCategory(Category.parse(category), start, end, rows);
+  }
+
+  /**
+   * Sets the bit of every row in [start, end) with the given category.
+   */
+  public void findCategory(Category category, int start, int end, BitSet rows) {
+    markRows(indexes.category(category.code()), start, end, rows);
+  }
+
+  /**
+   * Sets the bit of every row in [start, end) whose amount equals the given one.
+   */
+  public void findAmount(double amount, int start, int end, BitSet rows) {
+    TransactionIndex.PostingList withAmount = indexes.amount(amount);
+    if (withAmount != null) {
+      markRows(withAmount, start, end, rows);
+    }
+  }
+
+  /**
+   * Sets the bit of every row in [start, end) whose amount lies in [min, max].
+   */
+  public void findAmountRange(double min, double max, int start, int end, BitSet rows) {
+    for (TransactionIndex.PostingList withAmount : amountRange(min, max)) {
+      markRows(withAmount, start, end, rows);
+    }
+  }
+
+  // The count methods return an upper bound on the number of matching rows
+  // in O(1) (or O(distinct amounts) for ranges), and in O(log n) per posting
+  // list for sub-lists. They are meant for choosing between index lookups and
+  // scans, and may include removed or newer rows.
+
+  public int countCategory(String category) {
+    return countCategory(Category.parse(category));
+  }
+
+  public int countCategory(Category category) {
+    return countRows(indexes.category(category.code()));
+  }
+
+  public int countAmount(double amount) {
+    TransactionIndex.PostingList withAmount = indexes.amount(amount);
+    return withAmount == null ? 0 : countRows(withAmount);
+  }
+
+  public int countAmountRange(double min, double max) {
+    int count = 0;
+    for (TransactionIndex.PostingList withAmount : amountRange(min, max)) {
+      count += countRows(withAmount);
+    }
+    return count;
+  }
+
+  /**
+   * Returns the number of leading rows that show the same transactions in
+   * this snapshot and the other, or -1 if the snapshots are of different
+   * models or either is a sub-list. Compares the removed slots instead of the rows, skipping the parts
+   * of the removed-slot sets the snapshots share, so a snapshot taken after a
+   * few changes is compared in about O(log n) time.
+   */
+  public int commonPrefix(TransactionSnapshot other) {
+    if (other.columns != columns || isSubList() || other.isSubList()) {
+      return -1;
+    }
+    // Find the first slot below both slot counts removed in only one
+    // snapshot; every row in front of it shows the same slot in both
+    int differing = RemovedSlots.firstDifference(removedSlots, other.removedSlots);
+    int limit = Math.min(slotCount, other.slotCount);
+    if (differing < 0 || differing > limit) {
+      differing = limit;
+    }
+    return differing - removedSlots.countBefore(differing);
+  }
+
+  /**
+   * Returns the number of trailing rows that show the same transactions in
+   * this snapshot and the other, or -1 if the snapshots are of different
+   * models or either is a sub-list. Like commonPrefix, compares the removed slots rather than the
+   * rows. The common prefix and suffix may overlap.
+   */
+  public int commonSuffix(TransactionSnapshot other) {
+    if (other.columns != columns || isSubList() || other.isSubList()) {
+      return -1;
+    }
+    TransactionSnapshot larger = slotCount >= other.slotCount ? this : other;
+    TransactionSnapshot smaller = larger == this ? other : this;
+    RemovedSlots largerRemoved = larger.removedSlots;
+
+    // Find the last slot shown by only one snapshot. Slots past the end of
+    // the smaller one are shown by the larger one unless removed there.
+    int differing = -1;
+    for (int slot = larger.slotCount - 1; slot >= smaller.slotCount; slot--) {
+      if (!largerRemoved.contains(slot)) {
+        differing = slot;
+        break;
+      }
+    }
+    if (differing < 0) {
+      // Below that, compare the removed slots
+      differing = RemovedSlots.lastDifference(largerRemoved, smaller.removedSlots, smaller.slotCount);
+    }
+    // Slots above the differing one, less the removed ones
+    int removedAbove = largerRemoved.size() - largerRemoved.countBefore(differing + 1);
+    return larger.slotCount - 1 - differing - removedAbove;
+  }
+
+  private Collection<TransactionIndex.PostingList> amountRange(double min, double max) {
+    if (!(min <= max)) {
+      return Collections.emptyList();
+    }
+    return indexes.amounts().subMap(min, true, max, true).values();
+  }
+
+  // Counts the entries of a posting list that fall into the slots of this
+  // snapshot's rows, including removed slots
+  private int countRows(TransactionIndex.PostingList list) {
+    if (!isSubList()) {
+      return list.size();
+    }
+    if (size == 0) {
+      return 0;
+    }
+    // Read the size first, as PostingList requires
+    int count = list.size();
+    int[] slots = list.slots();
+    int from = Arrays.binarySearch(slots, 0, count, slotAt(0));
+    int to = Arrays.binarySearch(slots, 0, count, slotAt(size - 1) + 1);
+    return (to < 0 ? -to - 1 : to) - (from < 0 ? -from - 1 : from);
+  }
+
+  // Walks the part of a posting list that falls into the rows [start, end),
+  // skipping slots removed before this snapshot was taken
+  private void markRows(TransactionIndex.PostingList list, int start, int end, BitSet rows) {
+    Objects.checkFromToIndex(start, end, size);
+    if (start == end) {
+      return;
+    }
+    int firstSlot = removedSlots.slotOf(firstRow + start);
+    int lastSlot = removedSlots.slotOf(firstRow + end - 1);
+    int count = list.size();
+    int[] slots = list.slots();
+
+    int i = Arrays.binarySearch(slots, 0, count, firstSlot);
+    if (i < 0) {
+      i = -i - 1;
+    }
+    // Number of removed slots in front of the current slot, and the next one
+    int removedBefore = removedSlots.countBefore(firstSlot);
+    int nextRemoved = removedSlots.next(firstSlot);
+    for (; i < count; i++) {
+      int slot = slots[i];
+      if (slot > lastSlot) {
+        break;
+      }
+      while (nextRemoved >= 0 && nextRemoved < slot) {
+        removedBefore++;
+        nextRemoved = removedSlots.next(nextRemoved + 1);
+      }
+      if (nextRemoved == slot) {
+        continue;
+      }
+      rows.set(slot - removedBefore - firstRow);
+    }
+  }
+
+  private int slotAt(int index) {
+    Objects.checkIndex(index, size);
+    return removedSlots.slotOf(firstRow + index);
+  }
+
+  private boolean isSubList() {
+    return firstRow != 0 || size != slotCount - removedSlots.size();
+  }
+
+  @Override
+  public int indexOf(Object o) {
+    // Transactions know their own slot, so there is no need to scan the list
+    if (!(o instanceof Transaction)) {
+      return -1;
+    }
+    long id = ((Transaction) o).getId();
+    if (id < 0 || id >= slotCount || !o.equals(columns.transactionAt((int) id))) {
+      return -1;
+    }
+    return indexOfId(id);
+  }
+
+  /**
+   * Returns the row position of the transaction with the given ID, or -1 if
+   * it is not part of this snapshot.
+   */
+  public int indexOfId(long id) {
+    if (id < 0 || id >= slotCount) {
+      return -1;
+    }
+    int slot = (int) id;
+    if (removedSlots.contains(slot)) {
+      return -1;
+    }
+    // Every removed slot in front of this one shifts it up by one row
+    int row = slot - removedSlots.countBefore(slot) - firstRow;
+    return row >= 0 && row < size ? row : -1;
+  }
+
+  @Override
+  public int lastIndexOf(Object o) {
+    // A transaction is stored at most once
+    return indexOf(o);
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return indexOf(o) >= 0;
+  }
+
+  @Override
+  public Iterator<Transaction> iterator() {
+    // Walk the slots in order and step over removed ones without any searching
+    return new Iterator<Transaction>() {
+      private int slot = size == 0 ? 0 : slotAt(0);
+      private int nextRemoved = removedSlots.next(slot);
+      private int remaining = size;
+
+      @Override
+      public boolean hasNext() {
+        return remaining > 0;
+      }
+
+      @Override
+      public Transaction next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        skipRemoved();
+        remaining--;
+        return columns.transactionAt(slot++);
+      }
+
+      private void skipRemoved() {
+        while (nextRemoved == slot) {
+          slot++;
+          nextRemoved = removedSlots.next(slot);
+        }
+      }
+    };
+  }
+
+  // True if this snapshot shows exactly the given store state
+  boolean isAt(int slotCount, RemovedSlots removedSlots) {
+    return this.slotCount == slotCount && this.removedSlots == removedSlots;
+  }
+
+}
@@ -0,0 +1,288 @@
+package model;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Iterator;
+
+/**
+ * Ordered storage for the transactions of an ExpenseTrackerModel.
+ *
+ * The rows are kept in TransactionColumns rather than as Transaction objects;
+ * get and getAt return flyweight Transaction views created on demand.
+ *
+ * Every transaction receives a monotonically increasing ID when it is stored.
+ * Slots are never reused or compacted, so the slot of a transaction is its ID
+ * and lookups by ID read the row directly. Removing a transaction adds its
+ * slot to an immutable RemovedSlots set, which is used both to check whether a
+ * slot is still live and to translate between row positions and slots. Each
+ * removal publishes a new set that shares all but one path of the old one, so
+ * removals and lookups take O(log n) time however many rows were removed.
+ *
+ * Readers get a TransactionSnapshot, which shares the columns and the
+ * removed-slot set instead of copying them (see TransactionSnapshot).
+ *
+ * The store is thread-safe. Appends take the publish lock, write their rows
+ * past the published ones and then publish them by advancing the volatile
+ * slot count; readers never lock. Removals take a separate lock, so they do
+ * not wait for appends.
+ *
+ * The store also maintains a TransactionIndex, RunningAggregates and
+ * SpendRollups, which appends update right before they advance the slot count
+ * and removals update under the removal lock.
+ *
+ * A store may be backed by a TransactionJournal. Adds are then journaled
+ * under the publish lock and removals under the removal lock, so the journal
+ * sees changes in the order they become visible. An add is journaled before
+ * anything else is updated; if journaling fails, the add has no effect.
+ */
+class TransactionStore implements Iterable<Transaction> {
+
+  // Row 'id' holds the transaction with that ID; removed rows keep their
+  // values because older snapshots may still show them
+  private final TransactionColumns columns;
+  private final TransactionIndex index;
+  private final RunningAggregates aggregates;
+  private final SpendRollups rollups;
+  // Number of published slots; every slot below it is fully written. Only
+  // advanced under the publish lock.
+  private volatile int slotCount;
+  private final Object publishLock;
+  // Slots of the removed transactions. The set is replaced, never modified,
+  // so that snapshots can share it.
+  private volatile RemovedSlots removedSlots;
+  private final Object removalLock;
+  // Most recent snapshot, reused while nothing has changed
+  private volatile TransactionSnapshot snapshot;
+  // Null for a store that is only kept in memory. Set before the store is shared.
+  private TransactionJournal journal;
+
+  TransactionStore(StorageType storageType) {
+    columns = TransactionColumns.create(storageType);
+    index = new TransactionIndex(Category.count());
+    aggregates = new RunningAggregates(Category.count());
+    rollups = new SpendRollups(Category.count(), Transaction.timestampFormatter.getZone());
+    publishLock = new Object();
+    removedSlots = RemovedSlots.NONE;
+    removalLock = new Object();
+  }
+
+  /**
+   * Restores the transactions journaled in the given directory into this
+   * empty store and journals every later change there.
+   */
+  void openJournal(Path directory, JournalOptions options) throws IOException {
+    journal = TransactionJournal.open(directory, options, this);
+  }
+
+  /**
+   * Stores the transaction and returns the ID assigned to it.
+   */
+  long add(Transaction t) {
+    // Claim the transaction first so that it can only be stored once
+    t.claim();
+    int slot;
+    synchronized (publishLock) {
+      slot = slotCount;
+      boolean written = false;
+      try {
+        columns.set(slot, t.getAmount(), t.getCategoryCode(), t.getTimestampMillis());
+        if (journal != null) {
+          journal.appendAdd(slot, t.getAmount(), t.getCategoryCode(), t.getTimestampMillis());
+        }
+        written = true;
+      } finally {
+        if (!written) {
+          t.release();
+        }
+      }
+      aggregates.add(t.getAmount(), t.getCategoryCode());
+      rollups.add(t.getAmount(), t.getCategoryCode(), t.getTimestampMillis());
+      index.add(slot, t.getCategoryCode(), t.getAmount());
+      slotCount = slot + 1;
+    }
+    t.assignId(slot);
+    return slot;
+  }
+
+  /**
+   * Stores the rows [offset, offset + count) of the arrays as one batch and
+   * returns the ID of the first; the rows receive consecutive IDs and become
+   * visible together. The values must already be validated.
+   */
+  long addAll(double[] amounts, byte[] categoryCodes, long[] timestamps, int offset, int count) {
+    synchronized (publishLock) {
+      int first = slotCount;
+      for (int i = 0; i < count; i++) {
+        columns.set(first + i, amounts[offset + i], categoryCodes[offset + i], timestamps[offset + i]);
+      }
+      if (journal != null) {
+        journal.appendBatch(first, amounts, categoryCodes, timestamps, offset, count);
+      }
+      aggregates.addAll(amounts, categoryCodes, offset, count);
+      rollups.addAll(amounts, categoryCodes, timestamps, offset, count);
+      for (int i = 0; i < count; i++) {
+        index.add(first + i, categoryCodes[offset + i], amounts[offset + i]);
+      }
+      slotCount = first + count;
+      return first;
+    }
+  }
+
+  /**
+   * Returns the transaction with the given ID, or null if there is none.
+   */
+  Transaction get(long id) {
+    return contains(id) ? columns.transactionAt((int) id) : null;
+  }
+
+  /**
+   * Returns true if a transaction with the given ID is stored.
+   */
+  boolean contains(long id) {
+    return id >= 0 && id < slotCount && !removedSlots.contains((int) id);
+  }
+
+  /**
+   * Removes the transaction with the given ID.
+   *
+   * @return the row position the transaction had, or -1 if there was none
+   */
+  int remove(long id) {
+    synchronized (removalLock) {
+      if (!contains(id)) {
+        return -1;
+      }
+      int slot = (int) id;
+      int row = rowOf(slot);
+      if (journal != null) {
+        journal.appendRemove(slot);
+      }
+      aggregates.remove(columns.amount(slot), columns.category(slot));
+      rollups.remove(columns.amount(slot), columns.category(slot), columns.timestamp(slot));
+      removedSlots = removedSlots.with(slot);
+      return row;
+    }
+  }
+
+  // Row position of the slot given the removals so far; O(log n)
+  int rowOf(int slot) {
+    return slot - removedSlots.countBefore(slot);
+  }
+
+  /**
+   * Returns the aggregates of the stored transactions in O(1). While other
+   * threads are adding or removing, they may include changes that are not
+   * in a snapshot taken at the same time yet.
+   */
+  TransactionSummary summary() {
+    return aggregates.summary();
+  }
+
+  SpendRollups rollups() {
+    return rollups;
+  }
+
+  /**
+   * Returns the number of transactions currently stored.
+   */
+  int size() {
+    return snapshot().size();
+  }
+
+  /**
+   * Returns the transaction at the given row position.
+   */
+  Transaction getAt(int index) {
+    TransactionSnapshot current = snapshot();
+    if (index < 0 || index >= current.size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + current.size());
+    }
+    return current.get(index);
+  }
+
+  /**
+   * Returns the row position of the transaction with the given ID, or -1 if
+   * there is no such transaction.
+   */
+  int indexOf(long id) {
+    return snapshot().indexOfId(id);
+  }
+
+  /**
+   * Returns an immutable view of the current transactions in O(1).
+   *
+   * The snapshot includes every add and remove that completed before this call.
+   */
+  TransactionSnapshot snapshot() {
+    // Read the removed slots before the slot count: every removed slot was
+    // published before it was removed, so it is always below the count.
+    RemovedSlots removed = removedSlots;
+    int count = slotCount;
+    TransactionSnapshot current = snapshot;
+    if (current == null || !current.isAt(count, removed)) {
+      current = new TransactionSnapshot(columns, index, count, removed);
+      snapshot = current;
+    }
+    return current;
+  }
+
+  /**
+   * Starts a new journal log and writes a snapshot that covers all older logs.
+   * Called by the journal's background thread.
+   */
+  void checkpoint() throws IOException {
+    long generation;
+    int count;
+    RemovedSlots removed;
+    // Neither adds nor removals are journaled while the log is rotated, so
+    // the snapshot covers exactly the older logs
+    synchronized (publishLock) {
+      synchronized (removalLock) {
+        generation = journal.rotate();
+        removed = removedSlots;
+        count = slotCount;
+      }
+    }
+    journal.writeSnapshot(columns, count, removed, generation);
+  }
+
+  /**
+   * Forces every journaled change to disk.
+   */
+  void sync() throws IOException {
+    if (journal != null) {
+      journal.sync();
+    }
+  }
+
+  void close() throws IOException {
+    if (journal != null) {
+      journal.close();
+    }
+  }
+
+  // Used by the journal while recovering, before the store is shared. Rows
+  // are restored in slot order; rows at or past the count passed to
+  // finishRestore belong to an incomplete batch and are overwritten later.
+  void restore(int slot, double amount, byte categoryCode, long timestamp) {
+    columns.set(slot, amount, categoryCode, timestamp);
+  }
+
+  void finishRestore(int count, BitSet removed) {
+    // No snapshot shows the removed rows any more, so leave them out of the index
+    for (int slot = removed.nextClearBit(0); slot < count; slot = removed.nextClearBit(slot + 1)) {
+      index.add(slot, columns.category(slot), columns.amount(slot));
+    }
+    aggregates.addAll(columns, count, removed);
+    rollups.addAll(columns, count, removed);
+    removedSlots = RemovedSlots.of(removed);
+    slotCount = count;
+  }
+
+  @Override
+  public Iterator<Transaction> iterator() {
+    return snapshot().iterator();
+  }
+
+}
@@ -0,0 +1,86 @@
+package model;
+
+import java.util.EnumMap;
+
+/**
+ * Immutable aggregates over the transactions of an ExpenseTrackerModel:
+ * count, total, per-category totals and counts, and the smallest and largest
+ * amount.
+ *
+ * The model keeps these up to date on every add and remove (see
+ * ExpenseTrackerModel.getSummary), so reading them never scans the ledger.
+ * Totals are summed with compensation and do not drift as transactions are
+ * added and removed.
+ */
+public final class TransactionSummary {
+
+  static final TransactionSummary EMPTY =
+      new TransactionSummary(0, 0, new double[Category.count()], new int[Category.count()],
+          Double.NaN, Double.NaN);
+
+  private final int count;
+  private final double total;
+  private final double[] categoryTotals;
+  private final int[] categoryCounts;
+  private final double min;
+  private final double max;
+
+  TransactionSummary(int count, double total, double[] categoryTotals, int[] categoryCounts,
+                     double min, double max) {
+    this.count = count;
+    this.total = total;
+    this.categoryTotals = categoryTotals;
+    this.categoryCounts = categoryCounts;
+    this.min = min;
+    this.max = max;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  public double getTotal() {
+    return total;
+  }
+
+  public double getCategoryTotal(String category) {
+    return getCategoryTotal(Category.parse(category));
+  }
+
+  public double getCategoryTotal(Category category) {
+    return categoryTotals[category.ordinal()];
+  }
+
+  public int getCategoryCount(String category) {
+    return getCategoryCount(Category.parse(category));
+  }
+
+  public int getCategoryCount(Category category) {
+    return categoryCounts[category.ordinal()];
+  }
+
+  // The total of every category, including those without transactions
+  public EnumMap<Category, Double> getCategoryTotals() {
+    EnumMap<Category, Double> totals = new EnumMap<>(Category.class);
+    for (int i = 0; i < categoryTotals.length; i++) {
+      totals.put(Category.of((byte) i), categoryTotals[i]);
+    }
+    return totals;
+  }
+
+  // Smallest amount, or NaN if there are no transactions
+  public double getMin() {
+    return min;
+  }
+
+  // Largest amount, or NaN if there are no transactions
+  public double getMax() {
+    return max;
+  }
+
+  @Override
+  public String toString() {
+    return "TransactionSummary[count=" + count + ", total=" + total + ", min=" + min + ", max=" + max + "]";
+  }
+
+}
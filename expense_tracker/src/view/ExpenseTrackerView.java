@@ -4,7 +4,6 @@ import javax.swing.*;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 
 import java.awt.*;
 import java.awt.event.ActionListener;
@@ -12,6 +11,7 @@ import java.text.NumberFormat;
 
 import model.Transaction;
 
+import java.util.BitSet;
 import java.util.List;
 
 public class ExpenseTrackerView extends JFrame {
@@ -20,7 +20,7 @@ public class ExpenseTrackerView extends JFrame {
   private JButton addTransactionBtn;
   private JFormattedTextField amountField;
   private JTextField categoryField;
-  private DefaultTableModel model;
+  private TransactionTableModel model;
 
   // private JTextField dateFilterField;
   private JTextField categoryFilterField;
@@ -32,6 +32,9 @@ public class ExpenseTrackerView extends JFrame {
   //Added undo button
   private JButton undoBtn;
 
+  // Installed once; filters only swap the set of highlighted rows
+  private HighlightRenderer highlightRenderer;
+
   // this private variable is to store which row is selected for undo
   private int selectedRow;
   
@@ -40,12 +43,13 @@ public class ExpenseTrackerView extends JFrame {
     setTitle("Expense Tracker"); // Set title
     setSize(600, 400); // Make GUI larger
 
-    String[] columnNames = {"serial", "Amount", "Category", "Date"};
-    this.model = new DefaultTableModel(columnNames, 0);
+    this.model = new TransactionTableModel();
 
     
     // Create table
     transactionsTable = new JTable(model);
+    highlightRenderer = new HighlightRenderer();
+    transactionsTable.setDefaultRenderer(Object.class, highlightRenderer);
 
     addTransactionBtn = new JButton("Add Transaction");
 
@@ -104,7 +108,7 @@ public class ExpenseTrackerView extends JFrame {
 
   }
 
-  public DefaultTableModel getTableModel() {
+  public TransactionTableModel getTableModel() {
     return model;
   }
     
@@ -187,28 +191,15 @@ public class ExpenseTrackerView extends JFrame {
  
 
   public void refreshTable(List<Transaction> transactions) {
-      // Clear existing rows
-      model.setRowCount(0);
-      // Get row count
-      int rowNum = model.getRowCount();
-      double totalCost=0;
-      // Calculate total cost
-      for(Transaction t : transactions) {
-        totalCost+=t.getAmount();
-      }
-  
-      // Add rows from transactions list
-      for(Transaction t : transactions) {
-        model.addRow(new Object[]{rowNum+=1,t.getAmount(), t.getCategory(), t.getTimestamp()}); 
-      }
-      // Add total row
-      Object[] totalRow = {"Total", null, null, totalCost};
-      model.addRow(totalRow);
-  
-      // Fire table update
-      transactionsTable.updateUI();
-  
+      // Only the rows that changed since the last refresh are reported to the table,
+      // and the total row is updated incrementally by the table model.
+      model.setTransactions(transactions);
     }  
+
+  // Same, showing a total that the caller already knows
+  public void refreshTable(List<Transaction> transactions, double totalCost) {
+      model.setTransactions(transactions, totalCost);
+    }
   
 
   public JButton getAddTransactionBtn() {
@@ -220,25 +211,37 @@ public class ExpenseTrackerView extends JFrame {
   }
 
   public void highlightRows(List<Integer> rowIndexes) {
+      BitSet rows = new BitSet();
+      for (int rowIndex : rowIndexes) {
+        rows.set(rowIndex);
+      }
+      highlightRows(rows);
+  }
+
+  public void highlightRows(BitSet rows) {
       // The row indices are being used as hashcodes for the transactions.
       // The row index directly maps to the the transaction index in the list.
-      transactionsTable.setDefaultRenderer(Object.class, new DefaultTableCellRenderer() {
-          @Override
-          public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
-                                                        boolean hasFocus, int row, int column) {
-              Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
-              if (rowIndexes.contains(row)) {
-                  c.setBackground(new Color(173, 255, 168)); // Light green
-              } else {
-                  c.setBackground(table.getBackground());
-              }
-              return c;
-          }
-      });
-
+      highlightRenderer.setHighlightedRows(rows);
       transactionsTable.repaint();
   }
 
+  /**
+   * Highlights the matches of a part of the table, keeping the rows that are
+   * highlighted already: bit i of rows stands for row firstRow + i. Only the
+   * rows of that part are repainted.
+   */
+  public void addHighlightedRows(int firstRow, BitSet rows) {
+      int last = rows.length() - 1;
+      if (last < 0) {
+        return;
+      }
+      highlightRenderer.addHighlightedRows(firstRow, rows);
+      int first = firstRow + rows.nextSetBit(0);
+      Rectangle dirty = transactionsTable.getCellRect(first, 0, true)
+          .union(transactionsTable.getCellRect(firstRow + last, transactionsTable.getColumnCount() - 1, true));
+      transactionsTable.repaint(dirty);
+  }
+
   public Color getCellBackgroundColor(int row, int column) {
     DefaultTableCellRenderer renderer = (DefaultTableCellRenderer) transactionsTable.getCellRenderer(row, column);
     Component c = transactionsTable.prepareRenderer(renderer, row, column);
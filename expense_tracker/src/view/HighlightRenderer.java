@@ -0,0 +1,62 @@
+package view;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.util.BitSet;
+
+import javax.swing.JTable;
+import javax.swing.table.DefaultTableCellRenderer;
+
+/**
+ * Cell renderer that paints the highlighted rows in light green.
+ *
+ * One instance is installed for the whole lifetime of the table; a new filter
+ * result only replaces the row set. Looking up a row is a single bit test and
+ * painting a cell allocates nothing.
+ */
+public class HighlightRenderer extends DefaultTableCellRenderer {
+
+  private static final long serialVersionUID = 1L;
+
+  public static final Color HIGHLIGHT_COLOR = new Color(173, 255, 168); // Light green
+
+  private BitSet highlightedRows;
+
+  public HighlightRenderer() {
+    this.highlightedRows = new BitSet();
+  }
+
+  // The renderer keeps the given set, so callers must not modify it afterwards
+  public void setHighlightedRows(BitSet highlightedRows) {
+    this.highlightedRows = highlightedRows;
+  }
+
+  /**
+   * Highlights more rows: bit i of rows stands for row firstRow + i. The
+   * current set is changed in place, so it must be one the renderer owns.
+   */
+  public void addHighlightedRows(int firstRow, BitSet rows) {
+    for (int row = rows.nextSetBit(0); row >= 0; ) {
+      int runEnd = rows.nextClearBit(row);
+      highlightedRows.set(firstRow + row, firstRow + runEnd);
+      row = rows.nextSetBit(runEnd);
+    }
+  }
+
+  public BitSet getHighlightedRows() {
+    return highlightedRows;
+  }
+
+  @Override
+  public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                 boolean hasFocus, int row, int column) {
+    Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+    if (highlightedRows.get(row)) {
+      c.setBackground(HIGHLIGHT_COLOR);
+    } else {
+      c.setBackground(table.getBackground());
+    }
+    return c;
+  }
+
+}
@@ -0,0 +1,233 @@
+package view;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.table.AbstractTableModel;
+
+import model.Transaction;
+import model.TransactionSnapshot;
+
+/**
+ * Table model that reads the transaction list directly instead of copying
+ * every row into a DefaultTableModel.
+ *
+ * The table only asks for the cells it paints, so only the rows on screen are
+ * read. The most recently read rows are kept in a small LRU cache, since
+ * painting asks for every cell of a row separately and repaints the same rows
+ * while scrolling. The memory used besides the list itself is therefore
+ * bounded no matter how many transactions there are.
+ *
+ * Each call to setTransactions compares the new list against the one currently
+ * shown and fires events covering only the rows that changed. The "Total" row
+ * at the bottom shows the total passed in by the caller, normally the model's
+ * running total, or otherwise a total kept up to date from the changed rows.
+ */
+public class TransactionTableModel extends AbstractTableModel {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final String[] COLUMN_NAMES = {"serial", "Amount", "Category", "Date"};
+  // A few screens of rows
+  private static final int ROW_CACHE_SIZE = 256;
+
+  private List<Transaction> transactions;
+  private double totalCost;
+  // The total row only appears once the table has been refreshed for the first time
+  private boolean showTotal;
+  // Cell values of recently painted rows by row index, least recently used first
+  private final Map<Integer, CachedRow> rowCache =
+      new LinkedHashMap<Integer, CachedRow>(ROW_CACHE_SIZE * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, CachedRow> eldest) {
+          return size() > ROW_CACHE_SIZE;
+        }
+      };
+
+  public TransactionTableModel() {
+    this.transactions = Collections.emptyList();
+    this.totalCost = 0;
+    this.showTotal = false;
+  }
+
+  @Override
+  public int getRowCount() {
+    return showTotal ? transactions.size() + 1 : transactions.size();
+  }
+
+  @Override
+  public int getColumnCount() {
+    return COLUMN_NAMES.length;
+  }
+
+  @Override
+  public String getColumnName(int column) {
+    return COLUMN_NAMES[column];
+  }
+
+  @Override
+  public Object getValueAt(int row, int column) {
+    if (row == transactions.size()) {
+      // Total row
+      switch (column) {
+        case 0: return "Total";
+        case 3: return totalCost;
+        default: return null;
+      }
+    }
+    if (column == 0) {
+      return row + 1;
+    }
+    CachedRow cached = rowCache.get(row);
+    if (cached == null) {
+      cached = new CachedRow(transactions.get(row));
+      rowCache.put(row, cached);
+    }
+    switch (column) {
+      case 1: return cached.amount;
+      case 2: return cached.category;
+      case 3: return cached.date;
+      default: return null;
+    }
+  }
+
+  public int getTransactionCount() {
+    return transactions.size();
+  }
+
+  public double getTotalCost() {
+    return totalCost;
+  }
+
+  /**
+   * Replaces the displayed transactions with the given list.
+   *
+   * Only the changed region between the common prefix and the common suffix of
+   * the old and new lists is reported to the table, so adding or removing one
+   * transaction costs one event no matter how many rows are shown.
+   */
+  public void setTransactions(List<Transaction> newTransactions) {
+    update(newTransactions, false, 0);
+  }
+
+  /**
+   * Like setTransactions(List), but shows the given total instead of summing
+   * the changed rows, so refreshing after a large import costs only the diff.
+   */
+  public void setTransactions(List<Transaction> newTransactions, double newTotalCost) {
+    update(newTransactions, true, newTotalCost);
+  }
+
+  private void update(List<Transaction> newTransactions, boolean totalKnown, double newTotalCost) {
+    List<Transaction> oldTransactions = transactions;
+    int oldSize = oldTransactions.size();
+    int newSize = newTransactions.size();
+    int limit = Math.min(oldSize, newSize);
+
+    int prefix = -1;
+    int suffix = 0;
+    if (oldTransactions instanceof TransactionSnapshot && newTransactions instanceof TransactionSnapshot) {
+      // Snapshots of one model are compared by their removed rows, without
+      // visiting the others
+      TransactionSnapshot oldSnapshot = (TransactionSnapshot) oldTransactions;
+      TransactionSnapshot newSnapshot = (TransactionSnapshot) newTransactions;
+      prefix = oldSnapshot.commonPrefix(newSnapshot);
+      if (prefix >= 0) {
+        suffix = Math.min(oldSnapshot.commonSuffix(newSnapshot), limit - prefix);
+      }
+    }
+    if (prefix < 0) {
+      prefix = 0;
+      while (prefix < limit && sameRow(oldTransactions, prefix, newTransactions, prefix)) {
+        prefix++;
+      }
+      while (suffix < limit - prefix
+          && sameRow(oldTransactions, oldSize - 1 - suffix, newTransactions, newSize - 1 - suffix)) {
+        suffix++;
+      }
+    }
+
+    // Update the total with only the rows that left or entered the table
+    int removedEnd = oldSize - suffix;
+    int addedEnd = newSize - suffix;
+    if (totalKnown) {
+      totalCost = newTotalCost;
+    } else {
+      for (int i = prefix; i < removedEnd; i++) {
+        totalCost -= amountAt(oldTransactions, i);
+      }
+      for (int i = prefix; i < addedEnd; i++) {
+        totalCost += amountAt(newTransactions, i);
+      }
+    }
+    if (newSize == 0) {
+      // Avoid carrying floating point residue once the table is empty
+      totalCost = 0;
+    }
+
+    transactions = newTransactions;
+    // Rows in front of the change still show the same transactions
+    int unchangedRows = prefix;
+    rowCache.keySet().removeIf(row -> row >= unchangedRows);
+
+    if (!showTotal) {
+      showTotal = true;
+      fireTableDataChanged();
+      return;
+    }
+
+    int removedCount = removedEnd - prefix;
+    int addedCount = addedEnd - prefix;
+    int replacedCount = Math.min(removedCount, addedCount);
+    if (addedCount == removedCount) {
+      // Nothing moved; one update covers the replaced rows and the total row
+      if (replacedCount > 0) {
+        fireTableRowsUpdated(prefix, newSize);
+      }
+      return;
+    }
+    if (replacedCount > 0) {
+      fireTableRowsUpdated(prefix, prefix + replacedCount - 1);
+    }
+    // The table repaints every row below an insert or delete, which includes
+    // the serial numbers and the total row, so a batch of appended rows is a
+    // single insert event.
+    if (addedCount > removedCount) {
+      fireTableRowsInserted(prefix + replacedCount, prefix + addedCount - 1);
+    } else {
+      fireTableRowsDeleted(prefix + replacedCount, prefix + removedCount - 1);
+    }
+  }
+
+  // Rows of two model snapshots are compared by ID straight from the columns,
+  // without creating Transaction objects.
+  private static boolean sameRow(List<Transaction> a, int i, List<Transaction> b, int j) {
+    if (a instanceof TransactionSnapshot && b instanceof TransactionSnapshot) {
+      return ((TransactionSnapshot) a).getId(i) == ((TransactionSnapshot) b).getId(j);
+    }
+    return a.get(i).equals(b.get(j));
+  }
+
+  private static double amountAt(List<Transaction> transactions, int index) {
+    if (transactions instanceof TransactionSnapshot) {
+      return ((TransactionSnapshot) transactions).getAmount(index);
+    }
+    return transactions.get(index).getAmount();
+  }
+
+  // The cell values of one row; the serial number is the row index
+  private static final class CachedRow {
+    final Double amount;
+    final String category;
+    final String date;
+
+    CachedRow(Transaction t) {
+      this.amount = t.getAmount();
+      this.category = t.getCategory();
+      this.date = t.getTimestamp();
+    }
+  }
+
+}
@@ -0,0 +1,72 @@
+// package test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.Locale;
+
+import org.junit.Test;
+
+import model.Category;
+import model.ExpenseTrackerModel;
+import model.Transaction;
+import model.Filter.CategoryFilter;
+
+// Tests for the Category enum and the places that turn words into categories
+public class TestCategory {
+
+    @Test
+    public void testFromNameFoldsCase() {
+        for (Category category : Category.values()) {
+            String name = category.getName();
+            assertEquals(category, Category.fromName(name));
+            assertEquals(category, Category.fromName(name.toUpperCase(Locale.ROOT)));
+            assertEquals(category, Category.fromName(category.name()));
+            assertEquals(name, category.toString());
+        }
+        assertEquals(Category.TRAVEL, Category.fromName("TrAvEl"));
+    }
+
+    @Test
+    public void testFromNameRejectsUnknownWords() {
+        for (String word : new String[] {null, "", "foo", "foods", "food ", "FOODS", "bil", "billss", "misc"}) {
+            assertNull(String.valueOf(word), Category.fromName(word));
+        }
+    }
+
+    @Test
+    public void testOrdinalsAreTheStoredCodes() {
+        // Stored rows, journals and binary exports rely on this order
+        Category[] expected = {Category.FOOD, Category.TRAVEL, Category.BILLS, Category.ENTERTAINMENT, Category.OTHER};
+        assertEquals(expected.length, Category.values().length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(i, expected[i].ordinal());
+        }
+    }
+
+    @Test
+    public void testWordsAreStoredAsTheirCategory() {
+        ExpenseTrackerModel model = new ExpenseTrackerModel();
+        model.addTransaction(new Transaction(10, "FOOD"));
+        model.addTransaction(new Transaction(20, "Bills"));
+        model.addTransaction(new Transaction(30, Category.FOOD));
+        assertEquals("food", model.getTransactionAt(0).getCategory());
+        assertEquals(Category.BILLS, model.getTransactions().getCategoryType(1));
+        assertEquals(2, new CategoryFilter("Food").filter(model.getTransactions()).size());
+
+        for (String word : new String[] {"foods", "foo", null}) {
+            try {
+                new Transaction(10, word);
+                fail("Expected " + word + " to be rejected");
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+            try {
+                new CategoryFilter(word);
+                fail("Expected " + word + " to be rejected");
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+// package test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import java.text.SimpleDateFormat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import model.ExpenseTrackerModel;
+import model.StorageType;
+import model.Transaction;
+import model.TransactionSummary;
+
+// Stress tests for using ExpenseTrackerModel from several threads at once.
+// They only use the model, so they do not need a display.
+public class TestConcurrentModel {
+
+    private static final int THREADS = 8;
+    private static final int ADDS_PER_THREAD = 20000;
+    private static final String[] CATEGORIES = {"food", "travel", "bills", "entertainment", "other"};
+
+    private ExpenseTrackerModel model;
+
+    @Before
+    public void setup() {
+        model = new ExpenseTrackerModel();
+    }
+
+    // Runs the task on THREADS threads that all start at the same moment
+    private void runConcurrently(final ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; ++i) {
+            final int threadIndex = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                task.run(threadIndex);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            // Rethrows any assertion error from the worker threads
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    private interface ThreadTask {
+        void run(int threadIndex) throws Exception;
+    }
+
+    @Test
+    public void testConcurrentAddsAreAllStoredWithUniqueIds() throws Exception {
+        runConcurrently(threadIndex -> {
+            for (int i = 0; i < ADDS_PER_THREAD; ++i) {
+                // Encode the thread in the amount so rows can be traced back
+                model.addTransaction(new Transaction(threadIndex + 1, CATEGORIES[i % CATEGORIES.length]));
+            }
+        });
+
+        List<Transaction> transactions = model.getTransactions();
+        assertEquals(THREADS * ADDS_PER_THREAD, transactions.size());
+
+        // IDs are unique and increase along the list
+        long previousId = -1;
+        int[] perThread = new int[THREADS];
+        for (Transaction t : transactions) {
+            assertTrue(t.getId() > previousId);
+            previousId = t.getId();
+            perThread[(int) t.getAmount() - 1]++;
+        }
+        for (int count : perThread) {
+            assertEquals(ADDS_PER_THREAD, count);
+        }
+    }
+
+    @Test
+    public void testConcurrentAddsAndRemovesKeepSnapshotsConsistent() throws Exception {
+        final Queue<Transaction> removed = new ConcurrentLinkedQueue<>();
+        runConcurrently(threadIndex -> {
+            Random random = new Random(threadIndex);
+            List<Transaction> own = new ArrayList<>();
+            for (int i = 0; i < ADDS_PER_THREAD; ++i) {
+                Transaction t = new Transaction(1 + random.nextInt(999), CATEGORIES[random.nextInt(CATEGORIES.length)]);
+                model.addTransaction(t);
+                own.add(t);
+
+                // Remove one of this thread's transactions now and then
+                if (i % 4 == 3) {
+                    Transaction victim = own.remove(random.nextInt(own.size()));
+                    if (random.nextBoolean()) {
+                        model.removeTransaction(victim);
+                    } else {
+                        assertTrue(model.removeTransaction(victim.getId()));
+                    }
+                    removed.add(victim);
+                }
+
+                // Readers racing with writers always see a self-consistent snapshot
+                if (i % 1000 == 0) {
+                    List<Transaction> snapshot = model.getTransactions();
+                    int size = snapshot.size();
+                    int iterated = 0;
+                    long previousId = -1;
+                    for (Transaction s : snapshot) {
+                        assertTrue(s.getId() > previousId);
+                        previousId = s.getId();
+                        iterated++;
+                    }
+                    assertEquals(size, iterated);
+                    assertEquals(size, snapshot.size());
+                }
+            }
+        });
+
+        int expected = THREADS * (ADDS_PER_THREAD - ADDS_PER_THREAD / 4);
+        assertEquals(expected, model.getTransactionCount());
+        assertEquals(expected, model.getTransactions().size());
+        for (Transaction t : removed) {
+            assertEquals(null, model.getTransaction(t.getId()));
+            assertEquals(-1, model.indexOf(t.getId()));
+            assertFalse(model.removeTransaction(t.getId()));
+        }
+        List<Transaction> transactions = model.getTransactions();
+        for (int i = 0; i < transactions.size(); i += 997) {
+            assertEquals(i, model.indexOf(transactions.get(i).getId()));
+        }
+
+        // The running aggregates match a full scan
+        double total = 0;
+        double foodTotal = 0;
+        double min = Double.MAX_VALUE;
+        double max = 0;
+        for (Transaction t : transactions) {
+            total += t.getAmount();
+            if (t.getCategory().equals("food")) {
+                foodTotal += t.getAmount();
+            }
+            min = Math.min(min, t.getAmount());
+            max = Math.max(max, t.getAmount());
+        }
+        TransactionSummary summary = model.getSummary();
+        assertEquals(expected, summary.getCount());
+        assertEquals(total, summary.getTotal(), 1e-6);
+        assertEquals(foodTotal, summary.getCategoryTotal("food"), 1e-6);
+        assertEquals(min, summary.getMin(), 0.0);
+        assertEquals(max, summary.getMax(), 0.0);
+    }
+
+    @Test
+    public void testSameTransactionAddedFromManyThreadsIsStoredOnce() throws Exception {
+        final Transaction shared = new Transaction(50.0, "food");
+        final Queue<IllegalArgumentException> failures = new ConcurrentLinkedQueue<>();
+        runConcurrently(threadIndex -> {
+            try {
+                model.addTransaction(shared);
+            } catch (IllegalArgumentException e) {
+                failures.add(e);
+            }
+        });
+        assertEquals(1, model.getTransactionCount());
+        assertEquals(THREADS - 1, failures.size());
+    }
+
+    @Test
+    public void testConcurrentBatchesAreContiguous() throws Exception {
+        final int batches = 200;
+        final int batchSize = 50;
+        runConcurrently(threadIndex -> {
+            for (int b = 0; b < batches; ++b) {
+                List<Transaction> batch = new ArrayList<>();
+                for (int i = 0; i < batchSize; ++i) {
+                    batch.add(new Transaction(threadIndex + 1, "food"));
+                }
+                model.addTransactions(batch);
+                // Each batch gets consecutive IDs
+                assertEquals(batch.get(0).getId() + batchSize - 1, batch.get(batchSize - 1).getId());
+            }
+        });
+        List<Transaction> transactions = model.getTransactions();
+        assertEquals(THREADS * batches * batchSize, transactions.size());
+        // Batches are never interleaved with other threads' rows
+        for (int start = 0; start < transactions.size(); start += batchSize) {
+            double amount = transactions.get(start).getAmount();
+            for (int i = 1; i < batchSize; ++i) {
+                assertEquals(amount, transactions.get(start + i).getAmount(), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testBatchWithDuplicateIsRejected() {
+        Transaction t = new Transaction(5.0, "bills");
+        try {
+            model.addTransactions(Arrays.asList(new Transaction(1.0, "food"), t, t));
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals(0, model.getTransactionCount());
+        // Nothing was claimed, so the transaction can still be added
+        model.addTransaction(t);
+        assertEquals(1, model.getTransactionCount());
+    }
+
+    @Test
+    public void testConcurrentTimestampFormatting() throws Exception {
+        final ExpenseTrackerModel offHeapModel = new ExpenseTrackerModel(StorageType.OFF_HEAP);
+        runConcurrently(threadIndex -> {
+            for (int i = 0; i < 2000; ++i) {
+                offHeapModel.addTransaction(new Transaction(10.0, "bills"));
+            }
+        });
+        final List<Transaction> transactions = offHeapModel.getTransactions();
+
+        // Timestamps right around minute boundaries, and minutes that share a
+        // slot of the formatting cache, between 1970 and 2100
+        Random random = new Random(18);
+        final long[] millis = new long[3000];
+        for (int i = 0; i < millis.length; i += 6) {
+            long minute = random.nextInt(68 * 365 * 24 * 60) * 2L;
+            long boundary = minute * 60000L;
+            millis[i] = boundary - 1;
+            millis[i + 1] = boundary;
+            millis[i + 2] = boundary + 1;
+            millis[i + 3] = boundary + 59999;
+            millis[i + 4] = boundary + 60000;
+            millis[i + 5] = (minute + 256) * 60000L + random.nextInt(60000);
+        }
+        // Expected strings from a fresh formatter, used by this thread only
+        SimpleDateFormat format = new SimpleDateFormat("dd-MM-yyyy HH:mm");
+        final String[] expected = new String[millis.length];
+        for (int i = 0; i < millis.length; i++) {
+            expected[i] = format.format(new Date(millis[i]));
+        }
+        final Map<Long, String> expectedRows = new HashMap<>();
+        for (Transaction t : transactions) {
+            expectedRows.put(t.getTimestampMillis(), format.format(new Date(t.getTimestampMillis())));
+        }
+
+        // Every thread formats every timestamp, each in its own order, so the
+        // threads keep replacing each other's cache entries
+        runConcurrently(threadIndex -> {
+            Random order = new Random(threadIndex);
+            for (int round = 0; round < 5; ++round) {
+                for (int n = 0; n < millis.length; n++) {
+                    int i = order.nextInt(millis.length);
+                    assertEquals(expected[i], Transaction.formatTimestamp(millis[i]));
+                }
+            }
+            for (Transaction t : transactions) {
+                assertEquals(expectedRows.get(t.getTimestampMillis()), t.getTimestamp());
+            }
+        });
+    }
+
+}
@@ -0,0 +1,195 @@
+// package test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import model.Category;
+import model.ExpenseTrackerModel;
+import model.Transaction;
+import model.TransactionSnapshot;
+import model.Filter.AmountFilter;
+import model.Filter.AmountRangeFilter;
+import model.Filter.AndFilter;
+import model.Filter.CategoryFilter;
+import model.Filter.CategorySetFilter;
+import model.Filter.DateRangeFilter;
+import model.Filter.NotFilter;
+import model.Filter.OrFilter;
+import model.Filter.ParallelFiltering;
+import model.Filter.TransactionFilter;
+
+// Compares every filter with a plain scan of the same rows, on random
+// ledgers with removed rows, so that index lookups, the planner of the
+// composite filters, ranges, sub-lists, parallel filtering and row
+// streams all have to agree with the simple answer.
+public class TestFilters {
+
+    private static final String[] CATEGORIES = {"food", "Travel", "BILLS", "entertainment", "other"};
+
+    // A filter and the test it should apply to each transaction
+    private static final class Case {
+        final String name;
+        final TransactionFilter filter;
+        final Predicate<Transaction> expected;
+
+        Case(String name, TransactionFilter filter, Predicate<Transaction> expected) {
+            this.name = name;
+            this.filter = filter;
+            this.expected = expected;
+        }
+    }
+
+    // Adds count random rows, then removes about a quarter of them
+    private static ExpenseTrackerModel randomLedger(Random random, int count) {
+        ExpenseTrackerModel model = new ExpenseTrackerModel();
+        for (int i = 0; i < count; ++i) {
+            // Few distinct amounts, so that the amount index has long lists
+            double amount = random.nextInt(4) == 0 ? 1 + random.nextInt(1000) / 8.0 : 1 + random.nextInt(20);
+            model.addTransaction(new Transaction(amount, CATEGORIES[random.nextInt(CATEGORIES.length)]));
+        }
+        for (int i = 0; i < count / 5; ++i) {
+            // Single rows and runs of rows
+            long id = random.nextInt(count);
+            int run = random.nextInt(50) == 0 ? random.nextInt(50) : 1;
+            for (int j = 0; j < run; ++j) {
+                model.removeTransaction(id + j);
+            }
+        }
+        return model;
+    }
+
+    // Added rows get the current time, so the date bounds are taken from the
+    // ledger: one quarter of the rows is before from, and one quarter is
+    // from last on
+    private static List<Case> cases(TransactionSnapshot ledger) {
+        long from = ledger.getTimestampMillis(ledger.size() / 4);
+        long to = ledger.getTimestampMillis(ledger.size() / 2);
+        long last = ledger.getTimestampMillis(ledger.size() * 3 / 4);
+        List<Case> cases = new ArrayList<>();
+        cases.add(new Case("amount", new AmountFilter(7), t -> t.getAmount() == 7));
+        cases.add(new Case("amount range", new AmountRangeFilter(3, 12.5),
+            t -> t.getAmount() >= 3 && t.getAmount() <= 12.5));
+        cases.add(new Case("category", new CategoryFilter("FOOD"), t -> t.getCategory().equals("food")));
+        cases.add(new Case("category word", new CategoryFilter("bills"), t -> t.getCategory().equals("bills")));
+        cases.add(new Case("category type", new CategoryFilter(Category.OTHER),
+            t -> t.getCategoryType() == Category.OTHER));
+        cases.add(new Case("category set", new CategorySetFilter("travel", "other"),
+            t -> t.getCategory().equals("travel") || t.getCategory().equals("other")));
+        cases.add(new Case("date range", new DateRangeFilter(from, to),
+            t -> t.getTimestampMillis() >= from && t.getTimestampMillis() < to));
+        cases.add(new Case("and", new AndFilter(new CategoryFilter("food"), new AmountRangeFilter(1, 10)),
+            t -> t.getCategory().equals("food") && t.getAmount() <= 10));
+        cases.add(new Case("and scan", new DateRangeFilter(0, from).and(new AmountFilter(3)),
+            t -> t.getTimestampMillis() < from && t.getAmount() == 3));
+        cases.add(new Case("or", new OrFilter(new AmountFilter(5), new CategoryFilter("travel"),
+            new DateRangeFilter(to, last)),
+            t -> t.getAmount() == 5 || t.getCategory().equals("travel")
+                || t.getTimestampMillis() >= to && t.getTimestampMillis() < last));
+        cases.add(new Case("not", new NotFilter(new CategoryFilter("entertainment")),
+            t -> !t.getCategory().equals("entertainment")));
+        cases.add(new Case("nested", new OrFilter(
+            new AndFilter(new CategorySetFilter("bills", "food"), new NotFilter(new AmountRangeFilter(2, 18))),
+            new NotFilter(new OrFilter(new DateRangeFilter(0, last), new AmountFilter(9)))),
+            t -> (t.getCategory().equals("bills") || t.getCategory().equals("food"))
+                    && (t.getAmount() < 2 || t.getAmount() > 18)
+                || !(t.getTimestampMillis() < last || t.getAmount() == 9)));
+        return cases;
+    }
+
+    private static BitSet expectedRows(List<Transaction> transactions, Predicate<Transaction> expected) {
+        BitSet rows = new BitSet();
+        for (int row = 0; row < transactions.size(); row++) {
+            if (expected.test(transactions.get(row))) {
+                rows.set(row);
+            }
+        }
+        return rows;
+    }
+
+    private static List<Long> ids(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getId).collect(Collectors.toList());
+    }
+
+    private static void assertFiltersLikeAScan(Case c, List<Transaction> transactions) {
+        BitSet expected = expectedRows(transactions, c.expected);
+        assertEquals(c.name, expected, c.filter.filterRows(transactions));
+        assertEquals(c.name, ids(TransactionFilter.collect(transactions, expected)),
+            ids(c.filter.filter(transactions)));
+        assertArrayEquals(c.name, expected.stream().toArray(), c.filter.rows(transactions).toArray());
+        assertArrayEquals(c.name, expected.stream().limit(3).toArray(), c.filter.rows(transactions).limit(3).toArray());
+        assertEquals(c.name, ids(TransactionFilter.collect(transactions, expected)),
+            ids(c.filter.stream(transactions).collect(Collectors.toList())));
+        for (int row = 0; row < transactions.size(); row += 97) {
+            assertEquals(c.name, expected.get(row), c.filter.matches(transactions, row));
+        }
+    }
+
+    @Test
+    public void testFiltersMatchAScan() {
+        Random random = new Random(11);
+        for (int round = 0; round < 5; ++round) {
+            ExpenseTrackerModel model = randomLedger(random, 2000 + random.nextInt(20000));
+            TransactionSnapshot snapshot = model.getTransactions();
+            List<Transaction> copy = new ArrayList<>(snapshot);
+            for (Case c : cases(snapshot)) {
+                assertFiltersLikeAScan(c, snapshot);
+                // Without the indexes
+                assertFiltersLikeAScan(c, copy);
+            }
+        }
+    }
+
+    @Test
+    public void testRangesAndSubListsMatchAScan() {
+        Random random = new Random(12);
+        ExpenseTrackerModel model = randomLedger(random, 30000);
+        TransactionSnapshot snapshot = model.getTransactions();
+        for (Case c : cases(snapshot)) {
+            BitSet expected = expectedRows(snapshot, c.expected);
+            for (int i = 0; i < 20; ++i) {
+                int start = random.nextInt(snapshot.size());
+                int end = start + random.nextInt(snapshot.size() - start + 1);
+                BitSet rows = new BitSet();
+                c.filter.filterRows(snapshot, start, end, rows);
+                assertEquals(c.name, expected.get(start, end), rows.get(start, end));
+                // Nothing outside the range
+                assertEquals(c.name, expected.get(start, end).cardinality(), rows.cardinality());
+
+                assertFiltersLikeAScan(c, snapshot.subList(start, end));
+            }
+        }
+    }
+
+    @Test
+    public void testParallelFilteringMatchesAScan() {
+        int threshold = ParallelFiltering.getThreshold();
+        ParallelFiltering.setThreshold(1000);
+        try {
+            Random random = new Random(13);
+            ExpenseTrackerModel model = randomLedger(random, 150000);
+            TransactionSnapshot snapshot = model.getTransactions();
+            List<Transaction> copy = new ArrayList<>(snapshot);
+            for (Case c : cases(snapshot)) {
+                BitSet expected = expectedRows(snapshot, c.expected);
+                assertEquals(c.name, expected, c.filter.filterRows(snapshot));
+                assertEquals(c.name, expected, c.filter.filterRows(copy));
+                // A range that does not start at a multiple of 64
+                BitSet rows = new BitSet();
+                int end = snapshot.size() - 999;
+                ParallelFiltering.filterRows(c.filter, snapshot, 1001, end, rows);
+                assertEquals(c.name, expected.get(1001, end), rows.get(1001, end));
+                assertEquals(c.name, expected.get(1001, end).cardinality(), rows.cardinality());
+            }
+        } finally {
+            ParallelFiltering.setThreshold(threshold);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+// package test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.BitSet;
+import java.util.Locale;
+
+import org.junit.Test;
+
+import controller.InputValidation;
+
+// Tests for validating user input; they do not need a display
+public class TestInputValidation {
+
+    @Test
+    public void testCategoryWordsInAnyCase() {
+        for (String word : new String[] {"food", "travel", "bills", "entertainment", "other"}) {
+            assertTrue(word, InputValidation.isValidCategory(word));
+            assertTrue(word, InputValidation.isValidCategory(word.toUpperCase(Locale.ROOT)));
+            assertTrue(word, InputValidation.isValidCategory(
+                Character.toUpperCase(word.charAt(0)) + word.substring(1)));
+        }
+        assertTrue(InputValidation.isValidCategory("eNtErTaInMeNt"));
+    }
+
+    @Test
+    public void testUnknownWordsAndNearMisses() {
+        String[] invalid = {
+            null, "", " ", "foo", "foods", "fod", "foodd", " food", "food ", "fo od",
+            "travels", "bill", "Entertainments", "others", "unknown", "f00d", "food\n"
+        };
+        for (String word : invalid) {
+            assertFalse(String.valueOf(word), InputValidation.isValidCategory(word));
+        }
+    }
+
+    @Test
+    public void testCaseFoldingDoesNotDependOnTheLocale() {
+        Locale locale = Locale.getDefault();
+        try {
+            // In Turkish, "I".toLowerCase() is a dotless i
+            Locale.setDefault(new Locale("tr", "TR"));
+            assertTrue(InputValidation.isValidCategory("BILLS"));
+            assertTrue(InputValidation.isValidCategory("ENTERTAINMENT"));
+            // Only ASCII letters are folded
+            assertFalse(InputValidation.isValidCategory("b\u0130lls"));
+            assertFalse(InputValidation.isValidCategory("b\u0131lls"));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    public void testAmounts() {
+        assertTrue(InputValidation.isValidAmount(0.01));
+        assertTrue(InputValidation.isValidAmount(1000));
+        assertFalse(InputValidation.isValidAmount(0));
+        assertFalse(InputValidation.isValidAmount(-0.0));
+        assertFalse(InputValidation.isValidAmount(-5));
+        assertFalse(InputValidation.isValidAmount(1000.0001));
+    }
+
+    @Test
+    public void testFindInvalidReportsTheInvalidRows() {
+        double[] amounts = {0, 10, 20, 2000, 30, 40};
+        String[] categories = {"food", "food", "foods", "bills", "Travel", "foo"};
+        BitSet expected = new BitSet();
+        // Rows 1 to 5: 20 "foods", 2000 "bills" and 40 "foo" are invalid
+        expected.set(1);
+        expected.set(2);
+        expected.set(4);
+        assertEquals(expected, InputValidation.findInvalid(amounts, categories, 1, 5));
+        assertTrue(InputValidation.findInvalid(amounts, categories, 1, 1).isEmpty());
+        try {
+            InputValidation.findInvalid(amounts, categories, 2, 5);
+            fail("Expected the range to be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+}
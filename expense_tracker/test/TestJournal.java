@@ -0,0 +1,171 @@
+// package test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import model.ExpenseTrackerModel;
+import model.JournalOptions;
+import model.StorageType;
+import model.Transaction;
+import model.TransactionSnapshot;
+
+// Tests for restoring a journaled ExpenseTrackerModel
+public class TestJournal {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Small snapshot interval so that the tests also cover snapshots
+    private static final JournalOptions OPTIONS = new JournalOptions(16, 0, 1000);
+
+    private void assertSameTransactions(List<Transaction> expected, TransactionSnapshot actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            Transaction t = expected.get(i);
+            assertEquals(t.getId(), actual.getId(i));
+            assertEquals(t.getAmount(), actual.getAmount(i), 0.0);
+            assertEquals(t.getCategory(), actual.getCategory(i));
+            assertEquals(t.getTimestampMillis(), actual.getTimestampMillis(i));
+        }
+    }
+
+    @Test
+    public void testReopenRestoresTransactionsAndIds() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        ExpenseTrackerModel model = new ExpenseTrackerModel(StorageType.HEAP, directory, OPTIONS);
+        for (int i = 0; i < 5000; ++i) {
+            model.addTransaction(new Transaction(1 + i % 100, i % 2 == 0 ? "food" : "bills"));
+            if (i % 10 == 9) {
+                model.removeTransaction(i - 5);
+            }
+        }
+        List<Transaction> expected = model.getTransactions();
+        model.close();
+
+        ExpenseTrackerModel reopened = new ExpenseTrackerModel(StorageType.OFF_HEAP, directory, OPTIONS);
+        assertSameTransactions(expected, reopened.getTransactions());
+        // The indexes are rebuilt as well
+        int food = 0;
+        for (Transaction t : expected) {
+            if (t.getCategory().equals("food")) {
+                food++;
+            }
+        }
+        TransactionSnapshot restored = reopened.getTransactions();
+        BitSet rows = new BitSet();
+        restored.findCategory("food", 0, restored.size(), rows);
+        assertEquals(food, rows.cardinality());
+
+        // New transactions continue after the restored IDs
+        Transaction added = new Transaction(42.0, "travel");
+        reopened.addTransaction(added);
+        assertEquals(5000, added.getId());
+        reopened.close();
+    }
+
+    @Test
+    public void testTornRecordIsIgnored() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        ExpenseTrackerModel model = new ExpenseTrackerModel(StorageType.HEAP, directory, OPTIONS);
+        model.addTransaction(new Transaction(10.0, "food"));
+        model.addTransaction(new Transaction(20.0, "other"));
+        List<Transaction> expected = model.getTransactions();
+        model.close();
+
+        // Simulate a crash in the middle of writing a record
+        try (DirectoryStream<Path> logs = Files.newDirectoryStream(directory, "journal-*.log")) {
+            for (Path log : logs) {
+                try (FileChannel channel = FileChannel.open(log, StandardOpenOption.APPEND)) {
+                    channel.write(ByteBuffer.wrap(new byte[] {1, 0, 0}));
+                }
+            }
+        }
+
+        ExpenseTrackerModel reopened = new ExpenseTrackerModel(StorageType.HEAP, directory, OPTIONS);
+        assertSameTransactions(expected, reopened.getTransactions());
+        reopened.addTransaction(new Transaction(30.0, "bills"));
+        reopened.close();
+
+        ExpenseTrackerModel again = new ExpenseTrackerModel(StorageType.HEAP, directory, OPTIONS);
+        assertEquals(3, again.getTransactionCount());
+        again.close();
+    }
+
+    @Test
+    public void testFailedAddHasNoEffect() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        ExpenseTrackerModel model = new ExpenseTrackerModel(StorageType.HEAP, directory, OPTIONS);
+        model.addTransaction(new Transaction(10.0, "food"));
+        model.close();
+
+        // The closed journal rejects the add before anything is stored
+        Transaction rejected = new Transaction(20.0, "bills");
+        try {
+            model.addTransaction(rejected);
+            fail("Expected the add to fail");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals(1, model.getTransactionCount());
+        assertEquals(10.0, model.getSummary().getTotal(), 0.0);
+
+        // The transaction can still be added elsewhere, and later adds do not wait
+        ExpenseTrackerModel other = new ExpenseTrackerModel();
+        other.addTransaction(rejected);
+        assertEquals(0, rejected.getId());
+    }
+
+    @Test
+    public void testFailedRotationKeepsTheCurrentLog() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        ExpenseTrackerModel model = new ExpenseTrackerModel(StorageType.HEAP, directory, OPTIONS);
+        // The next log cannot be created while a directory has its name
+        Path blocked = Files.createDirectory(directory.resolve("journal-1.log"));
+        for (int i = 0; i < 3000; ++i) {
+            model.addTransaction(new Transaction(1 + i % 100, "food"));
+        }
+        List<Transaction> expected = model.getTransactions();
+        model.close();
+
+        Files.delete(blocked);
+        ExpenseTrackerModel reopened = new ExpenseTrackerModel(StorageType.HEAP, directory, OPTIONS);
+        assertSameTransactions(expected, reopened.getTransactions());
+        reopened.close();
+    }
+
+    @Test
+    public void testSnapshotLeavesOutRemovedRows() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        ExpenseTrackerModel model = new ExpenseTrackerModel(StorageType.HEAP, directory, OPTIONS);
+        for (int i = 0; i < 2000; ++i) {
+            model.addTransaction(new Transaction(1 + i % 100, "food"));
+        }
+        for (int i = 0; i < 1900; ++i) {
+            model.removeTransaction(i);
+        }
+        List<Transaction> expected = model.getTransactions();
+        model.close();
+
+        // A snapshot with every row would take 17 bytes for each of the 2000 slots
+        long size = Files.size(directory.resolve("snapshot.bin"));
+        assertTrue("Snapshot of " + size + " bytes", size < 17 * 2000);
+        ExpenseTrackerModel reopened = new ExpenseTrackerModel(StorageType.HEAP, directory, OPTIONS);
+        assertSameTransactions(expected, reopened.getTransactions());
+        assertEquals(100, reopened.getSummary().getCount());
+        reopened.close();
+    }
+
+}
@@ -0,0 +1,39 @@
+// package test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import controller.LatencyHistogram;
+
+// Tests for the histograms behind the controller metrics
+public class TestLatencyHistogram {
+
+    @Test
+    public void testPercentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1..100000 nanoseconds, each once
+        for (long nanos = 1; nanos <= 100000; nanos++) {
+            histogram.record(nanos);
+        }
+        assertEquals(100000, histogram.getCount());
+        long p50 = histogram.valueAtPercentile(50);
+        long p99 = histogram.valueAtPercentile(99);
+        assertTrue(p50 >= 50000 && p50 <= 50000 * 1.07);
+        assertTrue(p99 >= 99000 && p99 <= 99000 * 1.07);
+        assertEquals(100000, histogram.valueAtPercentile(100));
+        assertEquals(1, histogram.valueAtPercentile(0));
+        assertEquals(50.0005, histogram.getMeanMicros(), 1e-9);
+    }
+
+    @Test
+    public void testResetClearsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1234);
+        histogram.record(Long.MAX_VALUE);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.valueAtPercentile(99));
+        assertEquals(0.0, histogram.getMaxMicros(), 0);
+    }
+}
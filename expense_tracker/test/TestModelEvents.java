@@ -0,0 +1,53 @@
+// package test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import model.ExpenseTrackerModel;
+import model.Transaction;
+import model.TransactionChangeEvent;
+import model.TransactionChangeEvent.Type;
+import model.TransactionListener;
+
+// Tests for the change events of ExpenseTrackerModel
+public class TestModelEvents {
+
+    @Test
+    public void testEventsDescribeEachChange() {
+        ExpenseTrackerModel model = new ExpenseTrackerModel();
+        List<TransactionChangeEvent> events = new ArrayList<>();
+        TransactionListener listener = events::add;
+        model.addTransactionListener(listener);
+
+        Transaction first = new Transaction(10, "food");
+        model.addTransaction(first);
+        model.addTransactions(Arrays.asList(new Transaction(20, "bills"), new Transaction(30, "travel")));
+        // Removing the first row moves the others up
+        assertEquals(true, model.removeTransaction(first.getId()));
+        assertFalse(model.removeTransaction(first.getId()));
+        model.addTransaction(new Transaction(40, "other"));
+
+        assertEquals(4, events.size());
+        assertEvent(events.get(0), Type.INSERTED, 0, 1, 0);
+        assertEvent(events.get(1), Type.BATCH_INSERTED, 1, 2, 1);
+        assertEvent(events.get(2), Type.REMOVED, 0, 1, 0);
+        assertEvent(events.get(3), Type.INSERTED, 3, 1, 2);
+        assertEquals(model, events.get(0).getSource());
+
+        model.removeTransactionListener(listener);
+        model.addTransaction(new Transaction(50, "food"));
+        assertEquals(4, events.size());
+    }
+
+    private static void assertEvent(TransactionChangeEvent event, Type type, long firstId, int count, int index) {
+        assertEquals(type, event.getType());
+        assertEquals(firstId, event.getFirstId());
+        assertEquals(count, event.getCount());
+        assertEquals(index, event.getIndex());
+    }
+}
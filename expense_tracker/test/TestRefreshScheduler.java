@@ -0,0 +1,137 @@
+// package test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Test;
+
+import controller.RefreshScheduler;
+import model.ExpenseTrackerModel;
+import model.Transaction;
+import view.TransactionTableModel;
+
+// Tests for coalescing table refreshes; javax.swing.Timer also runs headless
+public class TestRefreshScheduler {
+
+    @Test
+    public void testBurstIsCoalescedIntoOneRefresh() throws Exception {
+        AtomicInteger refreshes = new AtomicInteger();
+        RefreshScheduler scheduler = new RefreshScheduler(refreshes::incrementAndGet, 50);
+        // The refresh runs on the EDT, so it cannot start before the burst ends
+        SwingUtilities.invokeAndWait(() -> {
+            for (int i = 0; i < 1000; i++) {
+                scheduler.request();
+            }
+        });
+        long deadline = System.currentTimeMillis() + 5000;
+        while (scheduler.isPending() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // Let the EDT finish the refresh that cleared the flag
+        SwingUtilities.invokeAndWait(() -> { });
+        assertFalse(scheduler.isPending());
+        assertEquals(1, refreshes.get());
+    }
+
+    @Test
+    public void testFlushRunsThePendingRefreshOnce() throws Exception {
+        AtomicInteger refreshes = new AtomicInteger();
+        RefreshScheduler scheduler = new RefreshScheduler(refreshes::incrementAndGet, 1000);
+        SwingUtilities.invokeAndWait(() -> {
+            scheduler.request();
+            scheduler.request();
+            scheduler.flush();
+            scheduler.flush();
+        });
+        assertEquals(1, refreshes.get());
+        assertFalse(scheduler.isPending());
+    }
+
+    @Test
+    public void testFlushFromAnotherThreadRefreshesOnTheEdt() throws Exception {
+        AtomicInteger refreshes = new AtomicInteger();
+        AtomicInteger offEdt = new AtomicInteger();
+        RefreshScheduler scheduler = new RefreshScheduler(() -> {
+            if (!SwingUtilities.isEventDispatchThread()) {
+                offEdt.incrementAndGet();
+            }
+            refreshes.incrementAndGet();
+        }, 60000);
+        assertFalse(SwingUtilities.isEventDispatchThread());
+        scheduler.request();
+        // flush waits for the refresh, so it is done when flush returns
+        scheduler.flush();
+        assertEquals(1, refreshes.get());
+        assertFalse(scheduler.isPending());
+
+        scheduler.request();
+        scheduler.cancel();
+        assertFalse(scheduler.isPending());
+        scheduler.flush();
+        assertEquals(1, refreshes.get());
+        assertEquals(0, offEdt.get());
+    }
+
+    @Test
+    public void testChangesOnOtherThreadsOnlyTouchTheTableOnTheEdt() throws Exception {
+        // Wired like the controller: every change requests a refresh of the table
+        ExpenseTrackerModel model = new ExpenseTrackerModel();
+        TransactionTableModel table = new TransactionTableModel();
+        AtomicInteger refreshes = new AtomicInteger();
+        AtomicInteger offEdt = new AtomicInteger();
+        RefreshScheduler scheduler = new RefreshScheduler(() -> {
+            refreshes.incrementAndGet();
+            table.setTransactions(model.getTransactions(), model.getSummary().getTotal());
+        }, 0);
+        table.addTableModelListener(e -> {
+            if (!SwingUtilities.isEventDispatchThread()) {
+                offEdt.incrementAndGet();
+            }
+        });
+        model.addTransactionListener(e -> scheduler.request());
+
+        int threads = 4;
+        int adds = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; ++i) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < adds; ++j) {
+                    Transaction t = new Transaction(1 + j % 10, "food");
+                    model.addTransaction(t);
+                    if (j % 4 == 0) {
+                        model.removeTransaction(t.getId());
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        scheduler.flush();
+
+        assertEquals(0, offEdt.get());
+        // Changes made while a refresh was queued were merged into it
+        assertTrue(refreshes.get() < threads * adds * 5 / 4);
+        SwingUtilities.invokeAndWait(() -> {
+            assertEquals(model.getTransactionCount(), table.getTransactionCount());
+            assertEquals(model.getSummary().getTotal(), table.getTotalCost(), 1e-9);
+
+            // On the EDT, a change is shown before the changing method returns
+            model.addTransaction(new Transaction(5, "bills"));
+            assertEquals(model.getTransactionCount(), table.getTransactionCount());
+        });
+        assertEquals(0, offEdt.get());
+    }
+}
@@ -0,0 +1,152 @@
+// package test;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import model.Category;
+import model.ExpenseTrackerModel;
+import model.RollupPeriod;
+import model.SpendBucket;
+import model.Transaction;
+import model.TransactionFiles;
+import model.TransactionSnapshot;
+
+// Compares the spend rollups with sums over all rows of the model
+public class TestSpendRollups {
+
+    private static final ZoneId ZONE = Transaction.timestampFormatter.getZone();
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    // 2020-01-01 and the first and last days of the years 1 to 9999
+    private static final long BASE = 1577836800000L;
+    private static final long MIN_TIMESTAMP = -62135596800000L + DAY;
+    private static final long MAX_TIMESTAMP = 253402300799999L - DAY;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Imports rows within about three years of BASE, and a few at the ends
+    // of the supported range
+    private ExpenseTrackerModel randomLedger(Random random, int count) throws Exception {
+        Path file = folder.newFile().toPath();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(12 + count * 17);
+            buffer.putInt(0x45545831).putLong(count);
+            for (int i = 0; i < count; ++i) {
+                long timestamp;
+                switch (random.nextInt(100)) {
+                    case 0: timestamp = MIN_TIMESTAMP + random.nextInt(1000) * DAY; break;
+                    case 1: timestamp = MAX_TIMESTAMP - random.nextInt(1000) * DAY; break;
+                    default: timestamp = BASE + (long) (random.nextDouble() * 1100 * DAY);
+                }
+                buffer.putDouble(1 + random.nextInt(10000) / 100.0).putLong(timestamp)
+                    .put((byte) random.nextInt(Category.values().length));
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        ExpenseTrackerModel model = new ExpenseTrackerModel();
+        TransactionFiles.importBinary(model, file);
+        for (int i = 0; i < count / 4; ++i) {
+            model.removeTransaction(random.nextInt(count));
+        }
+        return model;
+    }
+
+    private static LocalDate dayOf(long timestamp) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(timestamp), ZONE);
+    }
+
+    private static LocalDate randomDay(Random random) {
+        switch (random.nextInt(10)) {
+            case 0: return dayOf(MIN_TIMESTAMP).plusDays(random.nextInt(2000));
+            case 1: return dayOf(MAX_TIMESTAMP).minusDays(random.nextInt(2000));
+            default: return dayOf(BASE).plusDays(random.nextInt(1200) - 50);
+        }
+    }
+
+    // Sum and count of the rows of the category (or all, if null) between the days
+    private static double[] scan(TransactionSnapshot rows, Category category, LocalDate from, LocalDate to) {
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            LocalDate day = dayOf(rows.getTimestampMillis(i));
+            if ((category == null || rows.getCategoryType(i) == category)
+                    && !day.isBefore(from) && !day.isAfter(to)) {
+                sum += rows.getAmount(i);
+                count++;
+            }
+        }
+        return new double[] {sum, count};
+    }
+
+    @Test
+    public void testRangeTotalsMatchAScan() throws Exception {
+        Random random = new Random(17);
+        ExpenseTrackerModel model = randomLedger(random, 20000);
+        TransactionSnapshot rows = model.getTransactions();
+        for (int i = 0; i < 300; ++i) {
+            LocalDate from = randomDay(random);
+            LocalDate to = random.nextInt(5) == 0 ? randomDay(random) : from.plusDays(random.nextInt(800));
+            if (from.isAfter(to)) {
+                LocalDate day = from;
+                from = to;
+                to = day;
+            }
+            Category category = Category.values()[random.nextInt(Category.values().length)];
+
+            double[] expected = scan(rows, category, from, to);
+            assertEquals(expected[0], model.getRollups().getTotal(category, from, to), 1e-6);
+            assertEquals((int) expected[1], model.getRollups().getCount(category, from, to));
+            double[] all = scan(rows, null, from, to);
+            assertEquals(all[0], model.getRollups().getTotal(from, to), 1e-6);
+        }
+    }
+
+    @Test
+    public void testBucketsMatchAScan() throws Exception {
+        Random random = new Random(18);
+        ExpenseTrackerModel model = randomLedger(random, 5000);
+        TransactionSnapshot rows = model.getTransactions();
+        LocalDate from = dayOf(BASE).plusDays(3);
+        LocalDate to = from.plusDays(400);
+        for (RollupPeriod period : RollupPeriod.values()) {
+            List<SpendBucket> buckets = model.getRollups().getBuckets(Category.FOOD, period, from, to);
+            assertEquals(from, buckets.get(0).getStart());
+            assertEquals(to, buckets.get(buckets.size() - 1).getEnd());
+            for (SpendBucket bucket : buckets) {
+                double[] expected = scan(rows, Category.FOOD, bucket.getStart(), bucket.getEnd());
+                assertEquals(expected[0], bucket.getTotal(), 1e-6);
+                assertEquals((int) expected[1], bucket.getCount());
+            }
+        }
+    }
+
+    @Test
+    public void testRemovingEveryRowLeavesNothing() throws Exception {
+        Random random = new Random(19);
+        ExpenseTrackerModel model = randomLedger(random, 2000);
+        for (long id = 0; id < 2000; ++id) {
+            model.removeTransaction(id);
+        }
+        LocalDate first = dayOf(MIN_TIMESTAMP);
+        LocalDate last = dayOf(MAX_TIMESTAMP);
+        assertEquals(0.0, model.getRollups().getTotal(first, last), 0.0);
+        for (Category category : Category.values()) {
+            assertEquals(0, model.getRollups().getCount(category, first, last));
+        }
+    }
+}
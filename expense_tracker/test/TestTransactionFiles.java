@@ -0,0 +1,101 @@
+// package test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import controller.InputValidation;
+import model.ExpenseTrackerModel;
+import model.TransactionChangeEvent;
+import model.TransactionChangeEvent.Type;
+import model.TransactionFiles;
+
+// Tests for importing transactions with TransactionFiles
+public class TestTransactionFiles {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path write(String content) throws Exception {
+        Path file = folder.newFile().toPath();
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private void assertRejected(ExpenseTrackerModel model, Path file) throws Exception {
+        try {
+            TransactionFiles.importCsv(model, file);
+            fail("Expected the import to be rejected");
+        } catch (IllegalArgumentException e) {
+            // Nothing is added
+            assertEquals(0, model.getTransactionCount());
+        }
+    }
+
+    @Test
+    public void testNonFiniteAmountsAreInvalid() throws Exception {
+        assertFalse(InputValidation.isValidAmount(Double.NaN));
+        assertFalse(InputValidation.isValidAmount(Double.POSITIVE_INFINITY));
+        assertFalse(InputValidation.isValidAmount(Double.NEGATIVE_INFINITY));
+
+        ExpenseTrackerModel model = new ExpenseTrackerModel();
+        assertRejected(model, write("10,food\nNaN,food\n"));
+        assertRejected(model, write("Infinity,bills\n"));
+    }
+
+    @Test
+    public void testOnlyTheExpectedHeaderIsSkipped() throws Exception {
+        ExpenseTrackerModel model = new ExpenseTrackerModel();
+        assertEquals(2, TransactionFiles.importCsv(model, write("Amount, Category, Date\n10,food\n20,bills\n")));
+        assertEquals(1, TransactionFiles.importCsv(model, write("\"amount\",\"category\"\n30,travel\n")));
+        assertEquals(3, model.getTransactionCount());
+
+        // A first line that is neither a transaction nor the header is an error
+        ExpenseTrackerModel other = new ExpenseTrackerModel();
+        assertRejected(other, write("10O,food\n20,bills\n"));
+        assertRejected(other, write("amt,cat,date\n20,bills\n"));
+        // The header is only allowed on the first line
+        assertRejected(other, write("10,food\namount,category,date\n"));
+    }
+
+    @Test
+    public void testImportIsOneBatch() throws Exception {
+        // More rows than a binary segment holds, so that they are parsed in parts
+        int count = (1 << 20) + 10;
+        Path file = folder.newFile().toPath();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(12 + count * 17);
+            buffer.putInt(0x45545831).putLong(count);
+            for (int i = 0; i < count; ++i) {
+                buffer.putDouble(1 + i % 1000).putLong(1000L * i).put((byte) (i % 5));
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        ExpenseTrackerModel model = new ExpenseTrackerModel();
+        List<TransactionChangeEvent> events = new ArrayList<>();
+        model.addTransactionListener(events::add);
+        assertEquals(count, TransactionFiles.importBinary(model, file));
+        assertEquals(1, events.size());
+        assertEquals(Type.BATCH_INSERTED, events.get(0).getType());
+        assertEquals(count, events.get(0).getCount());
+        assertEquals(count, model.getTransactionCount());
+        assertEquals(1000L * (count - 1), model.getTransactions().getTimestampMillis(count - 1));
+    }
+
+}
@@ -0,0 +1,151 @@
+// package test;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.swing.event.TableModelEvent;
+
+import org.junit.Test;
+
+import model.ExpenseTrackerModel;
+import model.Transaction;
+import model.TransactionSnapshot;
+import view.TransactionTableModel;
+
+// Replays the events of TransactionTableModel on a copy of the rows it
+// showed, to check that they describe every change, and reads cells between
+// changes to check that the row cache never serves a moved row; runs headless
+public class TestTransactionTableModel {
+
+    // The rows of the table, kept up to date from the table events
+    private static final class Replay {
+        final List<Transaction> rows = new ArrayList<>();
+        List<Transaction> shown;
+
+        void apply(TableModelEvent e) {
+            if (e.getFirstRow() == TableModelEvent.HEADER_ROW || e.getLastRow() == Integer.MAX_VALUE) {
+                rows.clear();
+                rows.addAll(shown);
+                return;
+            }
+            switch (e.getType()) {
+                case TableModelEvent.INSERT:
+                    for (int row = e.getFirstRow(); row <= e.getLastRow(); row++) {
+                        rows.add(row, shown.get(row));
+                    }
+                    break;
+                case TableModelEvent.DELETE:
+                    rows.subList(e.getFirstRow(), e.getLastRow() + 1).clear();
+                    break;
+                default:
+                    // May include the total row below the transactions
+                    for (int row = e.getFirstRow(); row <= Math.min(e.getLastRow(), shown.size() - 1); row++) {
+                        rows.set(row, shown.get(row));
+                    }
+            }
+        }
+    }
+
+    private static double total(List<Transaction> transactions) {
+        double total = 0;
+        for (Transaction t : transactions) {
+            total += t.getAmount();
+        }
+        return total;
+    }
+
+    // Changes the model at random: single adds, runs of adds, removals and runs of removals
+    private static void change(Random random, ExpenseTrackerModel model) {
+        List<Transaction> transactions = model.getTransactions();
+        int count = transactions.size();
+        switch (random.nextInt(5)) {
+            case 0:
+                model.addTransaction(new Transaction(1 + random.nextInt(100), "food"));
+                break;
+            case 1:
+                for (int i = random.nextInt(50); i >= 0; --i) {
+                    model.addTransaction(new Transaction(1 + random.nextInt(100), "bills"));
+                }
+                break;
+            case 2:
+                if (count > 0) {
+                    model.removeTransaction(transactions.get(random.nextInt(count)));
+                }
+                break;
+            case 3:
+                if (count > 0) {
+                    int start = random.nextInt(count);
+                    int end = Math.min(count, start + random.nextInt(20));
+                    for (Transaction t : transactions.subList(start, end)) {
+                        model.removeTransaction(t);
+                    }
+                }
+                break;
+            default:
+                // No change
+        }
+    }
+
+    private static void assertReplayed(TransactionTableModel table, Replay replay,
+                                       List<Transaction> transactions) {
+        assertEquals(transactions, replay.rows);
+        assertEquals(transactions.size() + 1, table.getRowCount());
+    }
+
+    // Reads cells of random rows, so that the row cache holds rows that later move
+    private static void paint(Random random, TransactionTableModel table, List<Transaction> transactions) {
+        for (int i = 0; i < 40 && !transactions.isEmpty(); ++i) {
+            int row = random.nextInt(transactions.size());
+            Transaction t = transactions.get(row);
+            assertEquals(row + 1, table.getValueAt(row, 0));
+            assertEquals(t.getAmount(), (Double) table.getValueAt(row, 1), 0.0);
+            assertEquals(t.getCategory(), table.getValueAt(row, 2));
+            assertEquals(t.getTimestamp(), table.getValueAt(row, 3));
+        }
+    }
+
+    @Test
+    public void testEventsReproduceTheNewSnapshot() {
+        Random random = new Random(23);
+        ExpenseTrackerModel model = new ExpenseTrackerModel();
+        TransactionTableModel table = new TransactionTableModel();
+        Replay replay = new Replay();
+        table.addTableModelListener(replay::apply);
+        for (int step = 0; step < 2000; ++step) {
+            // Several changes may be shown by one refresh
+            for (int i = random.nextInt(3); i >= 0; --i) {
+                change(random, model);
+            }
+            TransactionSnapshot snapshot = model.getTransactions();
+            replay.shown = snapshot;
+            table.setTransactions(snapshot, model.getSummary().getTotal());
+            assertReplayed(table, replay, snapshot);
+            assertEquals(model.getSummary().getTotal(), table.getTotalCost(), 0.0);
+            paint(random, table, snapshot);
+        }
+    }
+
+    @Test
+    public void testEventsReproduceTheNewList() {
+        Random random = new Random(24);
+        ExpenseTrackerModel model = new ExpenseTrackerModel();
+        TransactionTableModel table = new TransactionTableModel();
+        Replay replay = new Replay();
+        table.addTableModelListener(replay::apply);
+        for (int step = 0; step < 2000; ++step) {
+            // Several changes may be shown by one refresh
+            for (int i = random.nextInt(3); i >= 0; --i) {
+                change(random, model);
+            }
+            // Plain lists are compared row by row instead of by removed slots
+            List<Transaction> transactions = new ArrayList<>(model.getTransactions());
+            replay.shown = transactions;
+            table.setTransactions(transactions);
+            assertReplayed(table, replay, transactions);
+            assertEquals(total(transactions), table.getTotalCost(), 1e-6);
+            paint(random, table, transactions);
+        }
+    }
+}